@@ -1,25 +1,96 @@
 package com.github.topi314.lavasrc;
 
+import com.github.topi314.lavasrc.search.SearchResultCache;
 import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.tools.DataFormatTools;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 public abstract class ExtendedAudioSourceManager implements AudioSourceManager {
 
+	public static final int BULK_MAX_TRACKS = 100_000;
+
+	// the legacy encoding starts with a boolean, so versions start at 2
+	private static final int ENCODING_VERSION = 2;
+
+	private static final int FLAG_ALBUM_NAME = 1;
+	private static final int FLAG_ALBUM_URL = 1 << 1;
+	private static final int FLAG_ARTIST_URL = 1 << 2;
+	private static final int FLAG_ARTIST_ARTWORK_URL = 1 << 3;
+	private static final int FLAG_PREVIEW_URL = 1 << 4;
+	private static final int FLAG_PREVIEW = 1 << 5;
+
+	private static final int BULK_ENCODING_VERSION = 1;
+	// title, author, identifier, uri, artwork url, isrc and the five extended fields
+	private static final int TRACK_STRING_COUNT = 11;
+
+	private SearchResultCache searchCache;
+
+	public void setSearchCache(@Nullable SearchResultCache searchCache) {
+		this.searchCache = searchCache;
+	}
+
+	/**
+	 * Answers the search from the search cache if set, otherwise loads and caches it.
+	 *
+	 * @param query the search query including anything else which changes the result, like the preview flag
+	 */
+	protected AudioItem cachedSearch(String query, SearchLoader loader) throws IOException {
+		if (this.searchCache == null) {
+			return loader.load();
+		}
+		var cached = this.searchCache.getItem(this.getSourceName(), query);
+		if (cached != null) {
+			return cached;
+		}
+		return this.searchCache.putItem(this.getSourceName(), query, loader.load());
+	}
+
+	/**
+	 * Returns the url prefixes which are left out when encoding the urls of tracks of this source.
+	 * Encoded tracks refer to prefixes by their index, so new prefixes may only be appended.
+	 */
+	protected List<String> getUrlPrefixes() {
+		return Collections.emptyList();
+	}
+
 	@Override
 	public void encodeTrack(AudioTrack track, DataOutput output) throws IOException {
 		var extendedTrack = (ExtendedAudioTrack) track;
-		DataFormatTools.writeNullableText(output, extendedTrack.getAlbumName());
-		DataFormatTools.writeNullableText(output, extendedTrack.getAlbumUrl());
-		DataFormatTools.writeNullableText(output, extendedTrack.getArtistUrl());
-		DataFormatTools.writeNullableText(output, extendedTrack.getArtistArtworkUrl());
-		DataFormatTools.writeNullableText(output, extendedTrack.getPreviewUrl());
-		output.writeBoolean(extendedTrack.isPreview());
+		var albumName = extendedTrack.getAlbumName();
+		var albumUrl = extendedTrack.getAlbumUrl();
+		var artistUrl = extendedTrack.getArtistUrl();
+		var artistArtworkUrl = extendedTrack.getArtistArtworkUrl();
+		var previewUrl = extendedTrack.getPreviewUrl();
+
+		var flags = (albumName != null ? FLAG_ALBUM_NAME : 0)
+			| (albumUrl != null ? FLAG_ALBUM_URL : 0)
+			| (artistUrl != null ? FLAG_ARTIST_URL : 0)
+			| (artistArtworkUrl != null ? FLAG_ARTIST_ARTWORK_URL : 0)
+			| (previewUrl != null ? FLAG_PREVIEW_URL : 0)
+			| (extendedTrack.isPreview() ? FLAG_PREVIEW : 0);
+
+		output.writeByte(ENCODING_VERSION);
+		output.writeByte(flags);
+		if (albumName != null) {
+			output.writeUTF(albumName);
+		}
+		for (var url : new String[]{albumUrl, artistUrl, artistArtworkUrl, previewUrl}) {
+			if (url != null) {
+				this.writeUrl(output, url);
+			}
+		}
 	}
 
 	@Override
@@ -27,26 +98,196 @@ public abstract class ExtendedAudioSourceManager implements AudioSourceManager {
 		return true;
 	}
 
+	@Override
+	public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException {
+		return this.createTrack(trackInfo, this.decodeTrack(input));
+	}
+
+	protected abstract AudioTrack createTrack(AudioTrackInfo trackInfo, ExtendedAudioTrackInfo extendedAudioTrackInfo);
+
 	protected ExtendedAudioTrackInfo decodeTrack(DataInput input) throws IOException {
-		String albumName = null;
-		String albumUrl = null;
-		String artistUrl = null;
-		String artistArtworkUrl = null;
-		String previewUrl = null;
-		boolean isPreview = false;
-		// Check if the input has more than 8 bytes available, which would indicate that the preview field is present.
-		// This is done to avoid breaking backwards compatibility with tracks that were saved before the preview field was added.
-		if (((DataInputStream) input).available() > Long.BYTES) {
-			albumName = DataFormatTools.readNullableText(input);
-			albumUrl = DataFormatTools.readNullableText(input);
-			artistUrl = DataFormatTools.readNullableText(input);
-			artistArtworkUrl = DataFormatTools.readNullableText(input);
-			previewUrl = DataFormatTools.readNullableText(input);
-			isPreview = input.readBoolean();
+		// Tracks encoded before any extended fields were added are followed directly by the 8 byte track position.
+		// Every later format writes at least one more byte, so this is only needed to recognize those.
+		if (input instanceof DataInputStream && ((DataInputStream) input).available() <= Long.BYTES) {
+			return new ExtendedAudioTrackInfo(null, null, null, null, null, false);
+		}
+		var version = input.readUnsignedByte();
+		if (version == ENCODING_VERSION) {
+			return this.decodeVersioned(input);
 		}
+		if (version > 1) {
+			throw new IOException("Unsupported extended track encoding version " + version);
+		}
+		// the legacy format starts with the presence flag of the album name
+		return this.decodeLegacy(input, version == 1);
+	}
+
+	private ExtendedAudioTrackInfo decodeVersioned(DataInput input) throws IOException {
+		var flags = input.readUnsignedByte();
+		var albumName = (flags & FLAG_ALBUM_NAME) != 0 ? input.readUTF() : null;
+		var albumUrl = (flags & FLAG_ALBUM_URL) != 0 ? this.readUrl(input) : null;
+		var artistUrl = (flags & FLAG_ARTIST_URL) != 0 ? this.readUrl(input) : null;
+		var artistArtworkUrl = (flags & FLAG_ARTIST_ARTWORK_URL) != 0 ? this.readUrl(input) : null;
+		var previewUrl = (flags & FLAG_PREVIEW_URL) != 0 ? this.readUrl(input) : null;
+		return new ExtendedAudioTrackInfo(albumName, albumUrl, artistArtworkUrl, previewUrl, artistUrl, (flags & FLAG_PREVIEW) != 0);
+	}
+
+	private ExtendedAudioTrackInfo decodeLegacy(DataInput input, boolean hasAlbumName) throws IOException {
+		var albumName = hasAlbumName ? input.readUTF() : null;
+		var albumUrl = DataFormatTools.readNullableText(input);
+		var artistUrl = DataFormatTools.readNullableText(input);
+		var artistArtworkUrl = DataFormatTools.readNullableText(input);
+		var previewUrl = DataFormatTools.readNullableText(input);
+		var isPreview = input.readBoolean();
 		return new ExtendedAudioTrackInfo(albumName, albumUrl, artistArtworkUrl, previewUrl, artistUrl, isPreview);
 	}
 
+	/**
+	 * Encodes the tracks of this source as one frame. Every distinct string is written once into a dictionary
+	 * and the tracks only refer to it, so the album and artist fields shared by a playlist cost a few bytes per track.
+	 * Track positions are not part of the frame.
+	 */
+	public void encodeTracks(List<AudioTrack> tracks, DataOutput output) throws IOException {
+		if (tracks.size() > BULK_MAX_TRACKS) {
+			throw new IllegalArgumentException("At most " + BULK_MAX_TRACKS + " tracks can be encoded at once");
+		}
+		var dictionary = new LinkedHashMap<String, Integer>();
+		var indices = new int[tracks.size() * TRACK_STRING_COUNT];
+		var i = 0;
+		for (var track : tracks) {
+			if (track.getSourceManager() != this || !(track instanceof ExtendedAudioTrack)) {
+				throw new IllegalArgumentException("Track " + track.getIdentifier() + " does not belong to source " + this.getSourceName());
+			}
+			var info = track.getInfo();
+			var extendedTrack = (ExtendedAudioTrack) track;
+			for (var text : new String[]{info.title, info.author, info.identifier, info.uri, info.artworkUrl, info.isrc, extendedTrack.getAlbumName(), extendedTrack.getAlbumUrl(), extendedTrack.getArtistUrl(), extendedTrack.getArtistArtworkUrl(), extendedTrack.getPreviewUrl()}) {
+				// 0 is reserved for null
+				indices[i++] = text == null ? 0 : dictionary.computeIfAbsent(text, key -> dictionary.size() + 1);
+			}
+		}
+
+		output.writeByte(BULK_ENCODING_VERSION);
+		writeVarInt(output, dictionary.size());
+		for (var text : dictionary.keySet()) {
+			this.writeUrl(output, text);
+		}
+		writeVarInt(output, tracks.size());
+		i = 0;
+		for (var track : tracks) {
+			var info = track.getInfo();
+			for (var j = 0; j < TRACK_STRING_COUNT; j++) {
+				writeVarInt(output, indices[i++]);
+			}
+			writeVarLong(output, info.length);
+			output.writeByte((info.isStream ? 1 : 0) | (((ExtendedAudioTrack) track).isPreview() ? 2 : 0));
+		}
+	}
+
+	public List<AudioTrack> decodeTracks(DataInput input) throws IOException {
+		var version = input.readUnsignedByte();
+		if (version != BULK_ENCODING_VERSION) {
+			throw new IOException("Unsupported bulk track encoding version " + version);
+		}
+		// the counts come from the frame, so nothing is allocated up front based on them
+		var dictionarySize = readVarInt(input);
+		if (dictionarySize > BULK_MAX_TRACKS * TRACK_STRING_COUNT) {
+			throw new IOException("Dictionary size " + dictionarySize + " out of range");
+		}
+		var dictionary = new ArrayList<String>();
+		// 0 is reserved for null
+		dictionary.add(null);
+		for (var i = 0; i < dictionarySize; i++) {
+			dictionary.add(this.readUrl(input));
+		}
+
+		var count = readVarInt(input);
+		if (count > BULK_MAX_TRACKS) {
+			throw new IOException("Track count " + count + " out of range");
+		}
+		var tracks = new ArrayList<AudioTrack>();
+		var strings = new String[TRACK_STRING_COUNT];
+		for (var i = 0; i < count; i++) {
+			for (var j = 0; j < TRACK_STRING_COUNT; j++) {
+				var index = readVarInt(input);
+				if (index >= dictionary.size()) {
+					throw new IOException("Dictionary index " + index + " out of bounds");
+				}
+				strings[j] = dictionary.get(index);
+			}
+			var length = readVarLong(input);
+			var flags = input.readUnsignedByte();
+			var info = new AudioTrackInfo(strings[0], strings[1], length, strings[2], (flags & 1) != 0, strings[3], strings[4], strings[5]);
+			tracks.add(this.createTrack(info, new ExtendedAudioTrackInfo(strings[6], strings[7], strings[9], strings[10], strings[8], (flags & 2) != 0)));
+		}
+		return tracks;
+	}
+
+	private static void writeVarInt(DataOutput output, int value) throws IOException {
+		writeVarLong(output, value & 0xFFFFFFFFL);
+	}
+
+	private static int readVarInt(DataInput input) throws IOException {
+		var value = readVarLong(input);
+		if (value > Integer.MAX_VALUE) {
+			throw new IOException("Variable length int out of range");
+		}
+		return (int) value;
+	}
+
+	private static void writeVarLong(DataOutput output, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			output.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInput input) throws IOException {
+		var value = 0L;
+		for (var shift = 0; shift < Long.SIZE; shift += 7) {
+			var b = input.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable length long");
+	}
+
+	/**
+	 * Writes the url as the index of its longest known prefix, 0 if none matches, followed by the rest of the url.
+	 */
+	private void writeUrl(DataOutput output, String url) throws IOException {
+		var prefixes = this.getUrlPrefixes();
+		var match = -1;
+		for (var i = 0; i < prefixes.size(); i++) {
+			var prefix = prefixes.get(i);
+			if (url.startsWith(prefix) && (match == -1 || prefix.length() > prefixes.get(match).length())) {
+				match = i;
+			}
+		}
+		output.writeByte(match + 1);
+		output.writeUTF(match == -1 ? url : url.substring(prefixes.get(match).length()));
+	}
+
+	private String readUrl(DataInput input) throws IOException {
+		var index = input.readUnsignedByte();
+		var rest = input.readUTF();
+		if (index == 0) {
+			return rest;
+		}
+		var prefixes = this.getUrlPrefixes();
+		if (index > prefixes.size()) {
+			throw new IOException("Unknown url prefix " + index + " for source " + this.getSourceName());
+		}
+		return prefixes.get(index - 1) + rest;
+	}
+
+	@FunctionalInterface
+	protected interface SearchLoader {
+		AudioItem load() throws IOException;
+	}
+
 	protected static class ExtendedAudioTrackInfo {
 		public final String albumName;
 		public final String albumUrl;
@@ -1,5 +1,6 @@
 package com.github.topi314.lavasrc;
 
+import com.github.topi314.lavasrc.search.SearchCancellation;
 import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import com.sedmelluq.discord.lavaplayer.tools.JsonBrowser;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpClientTools;
@@ -23,6 +24,8 @@ public class LavaSrcTools {
 
 	@Nullable
 	public static JsonBrowser fetchResponseAsJson(HttpInterface httpInterface, HttpUriRequest request) throws IOException {
+		// a superseded search aborts its requests, which makes execute or reading the content fail
+		SearchCancellation.register(request);
 		try (CloseableHttpResponse response = httpInterface.execute(request)) {
 			int statusCode = response.getStatusLine().getStatusCode();
 
@@ -43,6 +46,8 @@ public class LavaSrcTools {
 			var data = IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8);
 			log.debug("Response from '{}' was successful: {}", request.getURI(), data);
 			return JsonBrowser.parse(data);
+		} finally {
+			SearchCancellation.unregister(request);
 		}
 	}
 }
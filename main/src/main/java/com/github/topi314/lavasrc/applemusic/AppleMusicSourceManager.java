@@ -21,7 +21,6 @@ import org.apache.http.client.utils.URIBuilder;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.DataInput;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
@@ -50,6 +49,11 @@ public class AppleMusicSourceManager extends MirroringAudioSourceManager impleme
 	public static final String API_BASE = "https://api.music.apple.com/v1/";
 	public static final Set<AudioSearchResult.Type> SEARCH_TYPES = Set.of(AudioSearchResult.Type.TRACK, AudioSearchResult.Type.ALBUM, AudioSearchResult.Type.PLAYLIST, AudioSearchResult.Type.ARTIST, AudioSearchResult.Type.TEXT);
 	public static final Set<AudioSearchResult.Type> TOP_RESULT_SEARCH_TYPES = Set.of(AudioSearchResult.Type.TRACK, AudioSearchResult.Type.ALBUM, AudioSearchResult.Type.PLAYLIST, AudioSearchResult.Type.ARTIST);
+	// only append to this list, encoded tracks refer to the prefixes by index
+	private static final List<String> URL_PREFIXES = List.of(
+		"https://music.apple.com/",
+		"https://audio-ssl.itunes.apple.com/"
+	);
 
 	private final String countryCode;
 	private int playlistPageLimit;
@@ -116,8 +120,12 @@ public class AppleMusicSourceManager extends MirroringAudioSourceManager impleme
 	}
 
 	@Override
-	public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException {
-		var extendedAudioTrackInfo = super.decodeTrack(input);
+	protected List<String> getUrlPrefixes() {
+		return URL_PREFIXES;
+	}
+
+	@Override
+	protected AudioTrack createTrack(AudioTrackInfo trackInfo, ExtendedAudioTrackInfo extendedAudioTrackInfo) {
 		return new AppleMusicAudioTrack(trackInfo,
 			extendedAudioTrackInfo.albumName,
 			extendedAudioTrackInfo.albumUrl,
@@ -152,7 +160,8 @@ public class AppleMusicSourceManager extends MirroringAudioSourceManager impleme
 	public AudioItem loadItem(String identifier, boolean preview) {
 		try {
 			if (identifier.startsWith(SEARCH_PREFIX)) {
-				return this.getSearch(identifier.substring(SEARCH_PREFIX.length()).trim(), preview);
+				var query = identifier.substring(SEARCH_PREFIX.length()).trim();
+				return this.cachedSearch((preview ? PREVIEW_PREFIX : "") + query, () -> this.getSearch(query, preview));
 			}
 
 			var matcher = URL_PATTERN.matcher(identifier);
@@ -0,0 +1,78 @@
+package com.github.topi314.lavasrc.cache;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size bounded LRU cache where every entry expires after its time to live.
+ */
+public class ExpiringCache<K, V> {
+
+	private final int maxSize;
+	private final Duration defaultTtl;
+	private final LinkedHashMap<K, Entry<V>> entries;
+
+	public ExpiringCache(int maxSize, Duration defaultTtl) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be greater than 0");
+		}
+		this.maxSize = maxSize;
+		this.defaultTtl = defaultTtl;
+		this.entries = new LinkedHashMap<>(Math.min(maxSize, 1024), 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				return this.size() > ExpiringCache.this.maxSize;
+			}
+		};
+	}
+
+	@Nullable
+	public synchronized V get(K key) {
+		var entry = this.entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.expiresAt - System.nanoTime() <= 0) {
+			this.entries.remove(key);
+			return null;
+		}
+		return entry.value;
+	}
+
+	public void put(K key, V value) {
+		this.put(key, value, this.defaultTtl);
+	}
+
+	public synchronized void put(K key, V value, Duration ttl) {
+		if (ttl.isZero() || ttl.isNegative()) {
+			this.entries.remove(key);
+			return;
+		}
+		this.entries.put(key, new Entry<>(value, System.nanoTime() + ttl.toNanos()));
+	}
+
+	public synchronized void invalidate(K key) {
+		this.entries.remove(key);
+	}
+
+	public synchronized void clear() {
+		this.entries.clear();
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	private static class Entry<V> {
+		private final V value;
+		private final long expiresAt;
+
+		private Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -2,16 +2,18 @@ package com.github.topi314.lavasrc.deezer;
 
 import com.github.topi314.lavalyrics.AudioLyricsManager;
 import com.github.topi314.lavalyrics.lyrics.AudioLyrics;
-import com.github.topi314.lavalyrics.lyrics.BasicAudioLyrics;
 import com.github.topi314.lavasearch.AudioSearchManager;
 import com.github.topi314.lavasearch.result.AudioSearchResult;
 import com.github.topi314.lavasearch.result.BasicAudioSearchResult;
 import com.github.topi314.lavasrc.LavaSrcTools;
+import com.github.topi314.lavasrc.cache.ExpiringCache;
+import com.github.topi314.lavasrc.lyrics.TimedLyricsBuilder;
 import com.github.topi314.lavasrc.mirror.DefaultMirroringAudioTrackResolver;
 import com.github.topi314.lavasrc.mirror.MirroringAudioSourceManager;
 import com.github.topi314.lavasrc.mirror.MirroringAudioTrackResolver;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.DaemonThreadFactory;
 import com.sedmelluq.discord.lavaplayer.tools.JsonBrowser;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpClientTools;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpConfigurable;
@@ -21,13 +23,14 @@ import com.sedmelluq.discord.lavaplayer.track.*;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.DataInput;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -38,6 +41,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Pattern;
@@ -54,11 +61,28 @@ public class DeezerAudioSourceManager extends MirroringAudioSourceManager implem
 	public static final String PUBLIC_API_BASE = "https://api.deezer.com/2.0";
 	public static final String PRIVATE_API_BASE = "https://www.deezer.com/ajax/gw-light.php";
 	public static final String MEDIA_BASE = "https://media.deezer.com/v1";
+	public static final int TRACK_LIST_DATA_MAX_IDS = 200;
+	// prefetching only saves a round trip, prefetches above these limits are dropped
+	public static final int PREFETCH_THREADS = 2;
+	public static final int PREFETCH_QUEUE_SIZE = 50;
 	public static final Set<AudioSearchResult.Type> SEARCH_TYPES = Set.of(AudioSearchResult.Type.TRACK, AudioSearchResult.Type.ALBUM, AudioSearchResult.Type.PLAYLIST, AudioSearchResult.Type.ARTIST);
+	// only append to this list, encoded tracks refer to the prefixes by index
+	private static final List<String> URL_PREFIXES = List.of(
+		"https://www.deezer.com/album/",
+		"https://www.deezer.com/artist/",
+		"https://e-cdns-images.dzcdn.net/images/artist/",
+		"https://cdns-preview-",
+		"https://cdnt-preview.dzcdn.net/"
+	);
 	private static final Logger log = LoggerFactory.getLogger(DeezerAudioSourceManager.class);
 
 	private final HttpInterfaceManager httpInterfaceManager;
+	private final ExpiringCache<String, String> trackTokens = new ExpiringCache<>(10000, Duration.ofMinutes(30));
+	private final ThreadPoolExecutor prefetchExecutor = new ThreadPoolExecutor(PREFETCH_THREADS, PREFETCH_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(PREFETCH_QUEUE_SIZE), new DaemonThreadFactory("deezer-prefetch"));
 	private Tokens tokens;
+	private String masterDecryptionKey;
+	private String arl;
+	private DeezerAudioTrack.TrackFormat[] formats = DeezerAudioTrack.TrackFormat.DEFAULT_FORMATS;
 
 	public DeezerAudioSourceManager(String[] providers, AudioPlayerManager audioPlayerManager) {
 		this(unused -> audioPlayerManager, new DefaultMirroringAudioTrackResolver(providers));
@@ -97,13 +121,14 @@ public class DeezerAudioSourceManager extends MirroringAudioSourceManager implem
 		var sessionID = json.get("results").get("SESSION").text();
 
 		var getUserToken = new HttpPost(DeezerAudioSourceManager.PRIVATE_API_BASE + "?method=deezer.getUserData&input=3&api_version=1.0&api_token=");
-		getUserToken.setHeader("Cookie", "sid=" + sessionID);
+		getUserToken.setHeader("Cookie", this.getCookie(sessionID));
 		json = LavaSrcTools.fetchResponseAsJson(this.getHttpInterface(), getUserToken);
 
 		checkResponse(json, "Failed to get user token: ");
 		this.tokens = new Tokens(
 			json.get("results").get("checkForm").text(),
 			json.get("results").get("USER").get("OPTIONS").get("license_token").text(),
+			sessionID,
 			Instant.now().plus(3600, ChronoUnit.SECONDS)
 		);
 	}
@@ -115,6 +140,108 @@ public class DeezerAudioSourceManager extends MirroringAudioSourceManager implem
 		return this.tokens;
 	}
 
+	String getCookie(String sessionID) {
+		if (this.arl == null || this.arl.isEmpty()) {
+			return "sid=" + sessionID;
+		}
+		return "sid=" + sessionID + "; arl=" + this.arl;
+	}
+
+	public void setMasterDecryptionKey(String masterDecryptionKey) {
+		this.masterDecryptionKey = masterDecryptionKey;
+	}
+
+	public String getMasterDecryptionKey() {
+		return this.masterDecryptionKey;
+	}
+
+	/**
+	 * Deezer tracks are played directly from Deezer if a master decryption key is set, otherwise they are mirrored.
+	 */
+	public boolean isNativePlayback() {
+		return this.masterDecryptionKey != null && !this.masterDecryptionKey.isEmpty();
+	}
+
+	public void setArl(String arl) {
+		this.arl = arl;
+		this.tokens = null;
+	}
+
+	public void setFormats(DeezerAudioTrack.TrackFormat[] formats) {
+		if (formats == null || formats.length == 0) {
+			throw new IllegalArgumentException("Deezer formats must not be empty");
+		}
+		this.formats = formats;
+	}
+
+	public DeezerAudioTrack.TrackFormat[] getFormats() {
+		return this.formats;
+	}
+
+	/**
+	 * Loads the private track data of up to {@link #TRACK_LIST_DATA_MAX_IDS} tracks per request, including their track tokens for playback.
+	 */
+	public List<JsonBrowser> getTrackListData(List<String> ids) throws IOException {
+		var data = new ArrayList<JsonBrowser>(ids.size());
+		var tokens = this.getTokens();
+		for (var from = 0; from < ids.size(); from += TRACK_LIST_DATA_MAX_IDS) {
+			var chunk = ids.subList(from, Math.min(from + TRACK_LIST_DATA_MAX_IDS, ids.size()));
+			var request = new HttpPost(PRIVATE_API_BASE + "?method=song.getListData&input=3&api_version=1.0&api_token=" + tokens.api);
+			request.setHeader("Cookie", this.getCookie(tokens.sessionID));
+			request.setEntity(new StringEntity("{\"sng_ids\":[" + chunk.stream().map(id -> "\"" + id + "\"").collect(Collectors.joining(",")) + "]}", ContentType.APPLICATION_JSON));
+			var json = LavaSrcTools.fetchResponseAsJson(this.getHttpInterface(), request);
+			checkResponse(json, "Failed to get track list data: ");
+
+			for (var track : json.get("results").get("data").values()) {
+				var trackToken = track.get("TRACK_TOKEN").text();
+				if (trackToken != null) {
+					var expireAt = track.get("TRACK_TOKEN_EXPIRE").asLong(0);
+					var ttl = expireAt > 0 ? Duration.ofSeconds(expireAt - Instant.now().getEpochSecond() - 60) : Duration.ofMinutes(30);
+					this.trackTokens.put(track.get("SNG_ID").text(), trackToken, ttl);
+				}
+				data.add(track);
+			}
+		}
+		return data;
+	}
+
+	@Nullable
+	public String getTrackToken(String id) throws IOException {
+		var trackToken = this.trackTokens.get(id);
+		if (trackToken != null) {
+			return trackToken;
+		}
+		this.getTrackListData(List.of(id));
+		return this.trackTokens.get(id);
+	}
+
+	/**
+	 * Loads the missing track tokens of the tracks with one batched request in the background, mirrored and preview tracks don't need them.
+	 */
+	private void prefetchTrackTokens(List<AudioTrack> tracks, boolean preview) {
+		if (preview || !this.isNativePlayback()) {
+			return;
+		}
+		var ids = tracks.stream()
+			.map(AudioTrack::getIdentifier)
+			.filter(id -> this.trackTokens.get(id) == null)
+			.collect(Collectors.toList());
+		if (ids.isEmpty()) {
+			return;
+		}
+		try {
+			this.prefetchExecutor.execute(() -> {
+				try {
+					this.getTrackListData(ids);
+				} catch (Exception e) {
+					log.debug("Failed to prefetch track tokens for {} deezer tracks", ids.size(), e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			log.debug("Skipping track token prefetch of {} deezer tracks, too many pending", ids.size());
+		}
+	}
+
 	@NotNull
 	@Override
 	public String getSourceName() {
@@ -122,8 +249,12 @@ public class DeezerAudioSourceManager extends MirroringAudioSourceManager implem
 	}
 
 	@Override
-	public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException {
-		var extendedAudioTrackInfo = super.decodeTrack(input);
+	protected List<String> getUrlPrefixes() {
+		return URL_PREFIXES;
+	}
+
+	@Override
+	protected AudioTrack createTrack(AudioTrackInfo trackInfo, ExtendedAudioTrackInfo extendedAudioTrackInfo) {
 		return new DeezerAudioTrack(trackInfo,
 			extendedAudioTrackInfo.albumName,
 			extendedAudioTrackInfo.albumUrl,
@@ -183,17 +314,12 @@ public class DeezerAudioSourceManager extends MirroringAudioSourceManager implem
 		}
 
 		var results = json.get("results");
-		var lyricsText = results.get("LYRICS_TEXT").text();
-		var lyrics = new ArrayList<AudioLyrics.Line>();
-		for (var line : results.get("LYRICS_SYNC_JSON").values()) {
-			lyrics.add(new BasicAudioLyrics.BasicLine(
-				Duration.ofMillis(line.get("milliseconds").asLong(0)),
-				Duration.ofMillis(line.get("duration").asLong(0)),
-				line.get("line").text()
-			));
+		var lines = results.get("LYRICS_SYNC_JSON").values();
+		var lyrics = new TimedLyricsBuilder(lines.size());
+		for (var line : lines) {
+			lyrics.add(line.get("milliseconds").asLong(0), line.get("duration").asLong(TimedLyricsBuilder.UNTIL_NEXT), line.get("line").text());
 		}
-
-		return new BasicAudioLyrics("deezer", "LyricFind", lyricsText, lyrics);
+		return lyrics.build("deezer", "LyricFind", results.get("LYRICS_TEXT").text(), TimedLyricsBuilder.UNKNOWN_END);
 	}
 
 	@Override
@@ -219,7 +345,8 @@ public class DeezerAudioSourceManager extends MirroringAudioSourceManager implem
 	public AudioItem loadItem(String identifier, boolean preview) {
 		try {
 			if (identifier.startsWith(SEARCH_PREFIX)) {
-				return this.getSearch(identifier.substring(SEARCH_PREFIX.length()), preview);
+				var query = identifier.substring(SEARCH_PREFIX.length());
+				return this.cachedSearch((preview ? PREVIEW_PREFIX : "") + query, () -> this.getSearch(query, preview));
 			}
 
 			if (identifier.startsWith(ISRC_PREFIX)) {
@@ -408,8 +535,11 @@ public class DeezerAudioSourceManager extends MirroringAudioSourceManager implem
 			track.get("artist").put("picture_xl", json.get("artist").get("picture_xl"));
 		}
 
+		var albumTracks = this.parseTracks(tracks, preview);
+		this.prefetchTrackTokens(albumTracks, preview);
+
 		return new DeezerAudioPlaylist(json.get("title").text(),
-			this.parseTracks(tracks, preview),
+			albumTracks,
 			DeezerAudioPlaylist.Type.ALBUM,
 			json.get("link").text(),
 			artworkUrl,
@@ -437,8 +567,11 @@ public class DeezerAudioSourceManager extends MirroringAudioSourceManager implem
 		// This endpoint returns tracks with ISRC, unlike the other REST call
 		var tracks = this.getJson(PUBLIC_API_BASE + "/playlist/" + id + "/tracks?limit=10000");
 
+		var playlistTracks = this.parseTracks(tracks, preview);
+		this.prefetchTrackTokens(playlistTracks, preview);
+
 		return new DeezerAudioPlaylist(json.get("title").text(),
-			this.parseTracks(tracks, preview),
+			playlistTracks,
 			DeezerAudioPlaylist.Type.PLAYLIST,
 			json.get("link").text(),
 			artworkUrl,
@@ -469,6 +602,7 @@ public class DeezerAudioSourceManager extends MirroringAudioSourceManager implem
 
 	@Override
 	public void shutdown() {
+		this.prefetchExecutor.shutdownNow();
 		try {
 			this.httpInterfaceManager.close();
 		} catch (IOException e) {
@@ -493,11 +627,17 @@ public class DeezerAudioSourceManager extends MirroringAudioSourceManager implem
 	public static class Tokens {
 		public String api;
 		public String license;
+		public String sessionID;
 		public Instant expireAt;
 
 		public Tokens(String api, String license, Instant expireAt) {
+			this(api, license, null, expireAt);
+		}
+
+		public Tokens(String api, String license, String sessionID, Instant expireAt) {
 			this.api = api;
 			this.license = license;
+			this.sessionID = sessionID;
 			this.expireAt = expireAt;
 		}
 	}
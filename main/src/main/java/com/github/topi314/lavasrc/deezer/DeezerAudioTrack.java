@@ -1,13 +1,37 @@
 package com.github.topi314.lavasrc.deezer;
 
+import com.github.topi314.lavasrc.LavaSrcTools;
 import com.github.topi314.lavasrc.mirror.MirroringAudioSourceManager;
 import com.github.topi314.lavasrc.mirror.MirroringAudioTrack;
+import com.sedmelluq.discord.lavaplayer.container.flac.FlacAudioTrack;
+import com.sedmelluq.discord.lavaplayer.container.mp3.Mp3AudioTrack;
+import com.sedmelluq.discord.lavaplayer.container.mpeg.MpegAudioTrack;
+import com.sedmelluq.discord.lavaplayer.tools.io.HttpInterface;
 import com.sedmelluq.discord.lavaplayer.tools.io.SeekableInputStream;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
 import com.sedmelluq.discord.lavaplayer.track.InternalAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 public class DeezerAudioTrack extends MirroringAudioTrack {
+
+	private static final Logger log = LoggerFactory.getLogger(DeezerAudioTrack.class);
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
 	public DeezerAudioTrack(AudioTrackInfo trackInfo, DeezerAudioSourceManager sourceManager) {
 		this(trackInfo, null, null, null, null, null, false, sourceManager);
 	}
@@ -16,13 +40,106 @@ public class DeezerAudioTrack extends MirroringAudioTrack {
 		super(trackInfo, albumName, albumUrl, artistUrl, artistArtworkUrl, previewUrl, isPreview, sourceManager);
 	}
 
+	@Override
+	public void process(LocalAudioTrackExecutor executor) throws Exception {
+		var sourceManager = (DeezerAudioSourceManager) this.sourceManager;
+		if (this.isPreview || !sourceManager.isNativePlayback()) {
+			super.process(executor);
+			return;
+		}
+
+		try (var httpInterface = sourceManager.getHttpInterface()) {
+			Media media = null;
+			try {
+				media = this.getMedia(sourceManager, httpInterface);
+			} catch (Exception e) {
+				log.debug("Failed to get media url for deezer track {}, falling back to mirroring", this.trackInfo.identifier, e);
+			}
+			if (media != null) {
+				try (var stream = new DeezerPersistentHttpStream(httpInterface, media.url, null, this.getTrackDecryptionKey(sourceManager.getMasterDecryptionKey()))) {
+					processDelegate(media.format.trackFactory.apply(this.trackInfo, stream), executor);
+				}
+				return;
+			}
+		}
+		super.process(executor);
+	}
+
+	private Media getMedia(DeezerAudioSourceManager sourceManager, HttpInterface httpInterface) throws IOException {
+		var tokens = sourceManager.getTokens();
+
+		var trackToken = sourceManager.getTrackToken(this.trackInfo.identifier);
+		if (trackToken == null) {
+			throw new IllegalStateException("No track token found for track " + this.trackInfo.identifier);
+		}
+
+		// the media api picks the first of the requested formats which is available for the track and account
+		var formats = Arrays.stream(sourceManager.getFormats())
+			.map(format -> "{\"cipher\":\"BF_CBC_STRIPE\",\"format\":\"" + format.name() + "\"}")
+			.collect(Collectors.joining(","));
+		var getMediaURL = new HttpPost(DeezerAudioSourceManager.MEDIA_BASE + "/get_url");
+		getMediaURL.setEntity(new StringEntity("{\"license_token\":\"" + tokens.license + "\",\"media\":[{\"type\":\"FULL\",\"formats\":[" + formats + "]}],\"track_tokens\":[\"" + trackToken + "\"]}", ContentType.APPLICATION_JSON));
+		var json = LavaSrcTools.fetchResponseAsJson(httpInterface, getMediaURL);
+		DeezerAudioSourceManager.checkResponse(json, "Failed to get media url: ");
+
+		var media = json.get("data").index(0).get("media").index(0);
+		if (media.isNull()) {
+			throw new IllegalStateException("No media found for track " + this.trackInfo.identifier);
+		}
+		return new Media(URI.create(media.get("sources").index(0).get("url").text()), TrackFormat.valueOf(media.get("format").text()));
+	}
+
+	private byte[] getTrackDecryptionKey(String masterDecryptionKey) throws NoSuchAlgorithmException {
+		var digest = MessageDigest.getInstance("MD5").digest(this.trackInfo.identifier.getBytes(StandardCharsets.UTF_8));
+		var md5 = new char[digest.length * 2];
+		for (var i = 0; i < digest.length; i++) {
+			md5[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+			md5[i * 2 + 1] = HEX[digest[i] & 0xF];
+		}
+
+		var masterKey = masterDecryptionKey.getBytes(StandardCharsets.UTF_8);
+		var key = new byte[16];
+		for (var i = 0; i < 16; i++) {
+			key[i] = (byte) (md5[i] ^ md5[i + 16] ^ masterKey[i]);
+		}
+		return key;
+	}
+
 	@Override
 	protected AudioTrack makeShallowClone() {
-		return new DeezerAudioTrack(this.trackInfo, (DeezerAudioSourceManager) this.sourceManager);
+		return new DeezerAudioTrack(this.trackInfo, this.albumName, this.albumUrl, this.artistUrl, this.artistArtworkUrl, this.previewUrl, this.isPreview, this.sourceManager);
 	}
 
 	@Override
 	protected InternalAudioTrack createAudioTrack(AudioTrackInfo trackInfo, SeekableInputStream inputStream) {
-		return null;
+		return new Mp3AudioTrack(trackInfo, inputStream);
+	}
+
+	public enum TrackFormat {
+		FLAC(FlacAudioTrack::new),
+		MP3_320(Mp3AudioTrack::new),
+		MP3_256(Mp3AudioTrack::new),
+		MP3_128(Mp3AudioTrack::new),
+		MP3_64(Mp3AudioTrack::new),
+		AAC_64(MpegAudioTrack::new);
+
+		public static final TrackFormat[] DEFAULT_FORMATS = new TrackFormat[]{MP3_128, MP3_64};
+
+		private final BiFunction<AudioTrackInfo, SeekableInputStream, InternalAudioTrack> trackFactory;
+
+		TrackFormat(BiFunction<AudioTrackInfo, SeekableInputStream, InternalAudioTrack> trackFactory) {
+			this.trackFactory = trackFactory;
+		}
+	}
+
+	private static class Media {
+
+		private final URI url;
+		private final TrackFormat format;
+
+		private Media(URI url, TrackFormat format) {
+			this.url = url;
+			this.format = format;
+		}
 	}
 }
@@ -1,37 +1,94 @@
 package com.github.topi314.lavasrc.deezer;
 
-import com.sedmelluq.discord.lavaplayer.tools.io.ByteBufferInputStream;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpInterface;
 import com.sedmelluq.discord.lavaplayer.tools.io.PersistentHttpStream;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 
 public class DeezerPersistentHttpStream extends PersistentHttpStream {
 
+	private final HttpInterface httpInterface;
 	private final byte[] keyMaterial;
+	// bytes between the block start the stream was positioned at and the position which was sought
+	private long pendingSkip;
+	private CloseableHttpResponse alignedResponse;
 
 	public DeezerPersistentHttpStream(HttpInterface httpInterface, URI contentUrl, Long contentLength, byte[] keyMaterial) {
 		super(httpInterface, contentUrl, contentLength);
+		this.httpInterface = httpInterface;
 		this.keyMaterial = keyMaterial;
 	}
 
+	@Override
+	public long getPosition() {
+		return super.getPosition() + this.pendingSkip;
+	}
+
+	@Override
+	protected void seekHard(long position) throws IOException {
+		// only whole blocks can be decrypted, so the range request has to start at the block containing the position
+		var blockStart = DecryptingInputStream.blockStart(position);
+		super.seekHard(blockStart);
+		this.pendingSkip = position - blockStart;
+	}
+
 	@Override
 	public InputStream createContentInputStream(HttpResponse response) throws IOException {
-		return new DecryptingInputStream(response.getEntity().getContent(), this.keyMaterial, this.position);
+		var target = this.position + this.pendingSkip;
+		this.position = target;
+		this.pendingSkip = 0;
+
+		if (response.getStatusLine().getStatusCode() != HttpStatus.SC_PARTIAL_CONTENT) {
+			return new DecryptingInputStream(response.getEntity().getContent(), this.keyMaterial, 0, target);
+		}
+		var blockStart = DecryptingInputStream.blockStart(target);
+		if (blockStart == target) {
+			return new DecryptingInputStream(response.getEntity().getContent(), this.keyMaterial, blockStart, 0);
+		}
+
+		// reconnects after a network error resume at the exact position, which can't be decrypted, so request the whole block again
+		if (response instanceof CloseableHttpResponse) {
+			((CloseableHttpResponse) response).close();
+		}
+		this.closeAlignedResponse();
+		var request = new HttpGet(this.getConnectUrl());
+		request.setHeader(HttpHeaders.RANGE, "bytes=" + blockStart + "-");
+		this.alignedResponse = this.httpInterface.execute(request);
+		var statusCode = this.alignedResponse.getStatusLine().getStatusCode();
+		if (statusCode != HttpStatus.SC_PARTIAL_CONTENT) {
+			throw new IOException("Unexpected status code from Deezer for block aligned range request: " + statusCode);
+		}
+		return new DecryptingInputStream(this.alignedResponse.getEntity().getContent(), this.keyMaterial, blockStart, target - blockStart);
+	}
+
+	@Override
+	public void close() throws IOException {
+		super.close();
+		this.closeAlignedResponse();
+	}
+
+	private void closeAlignedResponse() throws IOException {
+		if (this.alignedResponse != null) {
+			this.alignedResponse.close();
+			this.alignedResponse = null;
+		}
 	}
 
 	private static class DecryptingInputStream extends InputStream {
@@ -40,16 +97,20 @@ public class DeezerPersistentHttpStream extends PersistentHttpStream {
 		private static final byte[] iv = new byte[]{0, 1, 2, 3, 4, 5, 6, 7};
 
 		private final InputStream in;
-		private final ByteBuffer buff;
-		private final InputStream out;
 		private final Cipher cipher;
+		// one block of which only every third full block is encrypted, decrypted in place
+		private final byte[] block = new byte[BLOCK_SIZE];
+		private int blockPosition;
+		private int blockLimit;
 		private long i;
-		private boolean filled;
+		private long skip;
 
-		public DecryptingInputStream(InputStream in, byte[] keyMaterial, long position) throws IOException {
-			this.in = new BufferedInputStream(in);
-			this.buff = ByteBuffer.allocate(BLOCK_SIZE);
-			this.out = new ByteBufferInputStream(this.buff);
+		/**
+		 * @param start the offset of the first byte of the response, must be a multiple of {@link #BLOCK_SIZE}
+		 * @param skip  the amount of decrypted bytes to drop before the requested position
+		 */
+		public DecryptingInputStream(InputStream in, byte[] keyMaterial, long start, long skip) throws IOException {
+			this.in = in;
 
 			try {
 				cipher = Cipher.getInstance("Blowfish/CBC/NoPadding");
@@ -59,38 +120,87 @@ public class DeezerPersistentHttpStream extends PersistentHttpStream {
 				throw new IOException(e);
 			}
 
-			i = Math.max(0, position / BLOCK_SIZE);
-			var remainingBytesInChunk = ((i + 1) * BLOCK_SIZE) - position;
-			if (remainingBytesInChunk < 2048) {
-				in.skip(remainingBytesInChunk);
-				i++;
+			this.i = start / BLOCK_SIZE;
+			this.skip = skip;
+		}
+
+		private static long blockStart(long position) {
+			return position - position % BLOCK_SIZE;
+		}
+
+		private boolean fill() throws IOException {
+			while (this.readBlock()) {
+				if (this.skip < this.blockLimit) {
+					this.blockPosition = (int) this.skip;
+					this.skip = 0;
+					return true;
+				}
+				this.skip -= this.blockLimit;
+			}
+			return false;
+		}
+
+		private boolean readBlock() throws IOException {
+			var length = 0;
+			while (length < BLOCK_SIZE) {
+				var read = this.in.read(this.block, length, BLOCK_SIZE - length);
+				if (read == -1) {
+					break;
+				}
+				length += read;
+			}
+			if (length == 0) {
+				return false;
+			}
+
+			if (this.i % 3 == 0 && length == BLOCK_SIZE) {
+				try {
+					this.cipher.doFinal(this.block, 0, BLOCK_SIZE, this.block, 0);
+				} catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e) {
+					throw new IOException(e);
+				}
 			}
+			this.i++;
+			this.blockPosition = 0;
+			this.blockLimit = length;
+			return true;
 		}
 
 		@Override
 		public int read() throws IOException {
-			if (this.filled && this.out.available() > 0) {
-				return this.out.read();
+			if (this.blockPosition >= this.blockLimit && !this.fill()) {
+				return -1;
 			}
-			var chunk = this.in.readNBytes(BLOCK_SIZE);
-			this.buff.clear();
-			this.filled = true;
-			if (this.i % 3 > 0 || chunk.length < BLOCK_SIZE) {
-				this.buff.put(chunk);
-			} else {
-				byte[] decryptedChunk;
-				try {
-					decryptedChunk = this.cipher.doFinal(chunk);
-				} catch (IllegalBlockSizeException | BadPaddingException e) {
-					throw new RuntimeException(e);
+			return this.block[this.blockPosition++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			var total = 0;
+			while (total < len) {
+				if (this.blockPosition >= this.blockLimit && !this.fill()) {
+					break;
 				}
-				this.buff.put(decryptedChunk);
+				var count = Math.min(len - total, this.blockLimit - this.blockPosition);
+				System.arraycopy(this.block, this.blockPosition, b, off + total, count);
+				this.blockPosition += count;
+				total += count;
 			}
-			i++;
-			this.buff.flip();
-			return this.out.read();
+			return total == 0 ? -1 : total;
 		}
 
+		@Override
+		public int available() {
+			return this.blockLimit - this.blockPosition;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.in.close();
+		}
 	}
 
 }
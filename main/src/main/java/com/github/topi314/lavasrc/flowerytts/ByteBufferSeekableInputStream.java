@@ -0,0 +1,74 @@
+package com.github.topi314.lavasrc.flowerytts;
+
+import com.sedmelluq.discord.lavaplayer.tools.io.SeekableInputStream;
+import com.sedmelluq.discord.lavaplayer.track.info.AudioTrackInfoProvider;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Seekable stream over an in memory or memory mapped clip, seeking only moves the position.
+ */
+class ByteBufferSeekableInputStream extends SeekableInputStream {
+
+	private final ByteBuffer buffer;
+
+	ByteBufferSeekableInputStream(ByteBuffer buffer) {
+		super(buffer.remaining(), 0);
+		this.buffer = buffer.slice();
+	}
+
+	@Override
+	public int read() {
+		if (!this.buffer.hasRemaining()) {
+			return -1;
+		}
+		return this.buffer.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		if (!this.buffer.hasRemaining()) {
+			return -1;
+		}
+		var count = Math.min(len, this.buffer.remaining());
+		this.buffer.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public long skip(long n) {
+		var count = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+		this.buffer.position(this.buffer.position() + count);
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return this.buffer.remaining();
+	}
+
+	@Override
+	public long getPosition() {
+		return this.buffer.position();
+	}
+
+	@Override
+	protected void seekHard(long position) {
+		this.buffer.position((int) Math.min(position, this.buffer.limit()));
+	}
+
+	@Override
+	public boolean canSeekHard() {
+		return true;
+	}
+
+	@Override
+	public List<AudioTrackInfoProvider> getTrackInfoProviders() {
+		return Collections.emptyList();
+	}
+}
@@ -0,0 +1,111 @@
+package com.github.topi314.lavasrc.flowerytts;
+
+import com.sedmelluq.discord.lavaplayer.tools.io.SeekableInputStream;
+import com.sedmelluq.discord.lavaplayer.track.info.AudioTrackInfoProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Streams a clip while recording the bytes read, the clip is put into the cache once it was read from start to end.
+ * Recording stops if the stream is sought, short skips are read instead so they don't interrupt it.
+ */
+class CachingSeekableInputStream extends SeekableInputStream {
+
+	private final SeekableInputStream delegate;
+	private final FloweryTTSCache cache;
+	private final String key;
+	private ByteArrayOutputStream recording = new ByteArrayOutputStream();
+
+	CachingSeekableInputStream(SeekableInputStream delegate, FloweryTTSCache cache, String key) {
+		super(delegate.getContentLength(), delegate.getMaxSkipDistance());
+		this.delegate = delegate;
+		this.cache = cache;
+		this.key = key;
+	}
+
+	@Override
+	public int read() throws IOException {
+		var b = this.delegate.read();
+		if (b == -1) {
+			this.complete();
+		} else if (this.recording != null) {
+			this.recording.write(b);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		var count = this.delegate.read(b, off, len);
+		if (count == -1) {
+			this.complete();
+		} else if (this.recording != null) {
+			this.recording.write(b, off, count);
+		}
+		return count;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		if (this.recording == null) {
+			return this.delegate.skip(n);
+		}
+		var buffer = new byte[(int) Math.min(n, 8192)];
+		var skipped = 0L;
+		while (skipped < n) {
+			var count = this.read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+			if (count == -1) {
+				break;
+			}
+			skipped += count;
+		}
+		return skipped;
+	}
+
+	private void complete() {
+		if (this.recording == null) {
+			return;
+		}
+		this.cache.put(this.key, this.recording.toByteArray());
+		this.recording = null;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return this.delegate.available();
+	}
+
+	@Override
+	public long getContentLength() {
+		return this.delegate.getContentLength();
+	}
+
+	@Override
+	public long getPosition() {
+		return this.delegate.getPosition();
+	}
+
+	@Override
+	protected void seekHard(long position) throws IOException {
+		this.recording = null;
+		this.delegate.seek(position);
+	}
+
+	@Override
+	public boolean canSeekHard() {
+		return this.delegate.canSeekHard();
+	}
+
+	@Override
+	public List<AudioTrackInfoProvider> getTrackInfoProviders() {
+		return this.delegate.getTrackInfoProviders();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.recording = null;
+		this.delegate.close();
+	}
+}
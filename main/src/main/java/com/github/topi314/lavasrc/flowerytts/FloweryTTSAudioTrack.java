@@ -7,20 +7,32 @@ import com.sedmelluq.discord.lavaplayer.container.ogg.OggAudioTrack;
 import com.sedmelluq.discord.lavaplayer.container.wav.WavAudioTrack;
 import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.tools.Units;
+import com.sedmelluq.discord.lavaplayer.tools.io.HttpClientTools;
+import com.sedmelluq.discord.lavaplayer.tools.io.HttpInterface;
 import com.sedmelluq.discord.lavaplayer.tools.io.PersistentHttpStream;
+import com.sedmelluq.discord.lavaplayer.tools.io.SeekableInputStream;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
 import com.sedmelluq.discord.lavaplayer.track.DelegatedAudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.InternalAudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import org.apache.commons.io.IOUtils;
 import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
@@ -38,33 +50,122 @@ public class FloweryTTSAudioTrack extends DelegatedAudioTrack {
 
 	@Override
 	public void process(LocalAudioTrackExecutor executor) throws Exception {
-		try (var httpInterface = this.sourceManager.getHttpInterface()) {
-			var queryParams = new URIBuilder(this.trackInfo.identifier).getQueryParams()
-				.stream()
-				.collect(Collectors.toMap(NameValuePair::getName, NameValuePair::getValue));
-
-			var apiUri = new URIBuilder(API_BASE)
-				.addParameter("text", this.trackInfo.title);
+		var params = this.resolveParams();
+		AudioFormat format = AudioFormat.getByName(params.get("audio_format"));
 
-			Map<String, String> config = this.sourceManager.getDefaultConfig();
-			String audioFormat = queryParams.getOrDefault("audio_format", config.get("audio_format"));
+		var text = params.get("text");
+		if (text.length() > FloweryTTSSourceManager.CHAR_MAX) {
+			if (!format.segmentable) {
+				throw new IllegalArgumentException("Character limit per request exceeded for audio format " + format.name);
+			}
+			this.processSegmented(executor, format, params, FloweryTTSSourceManager.splitText(text, FloweryTTSSourceManager.CHAR_MAX));
+			return;
+		}
 
-			for (var entry : config.entrySet()) {
-				var value = queryParams.getOrDefault(entry.getKey(), entry.getValue());
-				if (value == null) {
-					continue;
+		var cache = this.sourceManager.getCache();
+		var key = cache == null ? null : FloweryTTSCache.key(params);
+		if (cache != null) {
+			var clip = cache.get(key);
+			if (clip != null) {
+				log.debug("Playing cached TTS clip {}", key);
+				try (var stream = new ByteBufferSeekableInputStream(clip)) {
+					processDelegate(format.trackFactory.apply(this.trackInfo, stream), executor);
 				}
-				apiUri.addParameter(entry.getKey(), value);
+				return;
 			}
+		}
 
-			URI url = apiUri.build();
-			AudioFormat format = AudioFormat.getByName(audioFormat);
+		try (var httpInterface = this.sourceManager.getHttpInterface()) {
+			var url = buildUri(params);
 			log.debug("Requesting TTS URL \"{}\"", url);
+			var httpStream = new PersistentHttpStream(httpInterface, url, Units.CONTENT_LENGTH_UNKNOWN);
+			// playback starts right away, the clip is cached once it was streamed completely
+			try (SeekableInputStream stream = cache == null ? httpStream : new CachingSeekableInputStream(httpStream, cache, key)) {
+				processDelegate(format.trackFactory.apply(this.trackInfo, stream), executor);
+			}
+		}
+	}
+
+	/**
+	 * Synthesizes the segments concurrently with a bounded look-ahead and plays them back to back, playback starts once the first segment is ready.
+	 */
+	private void processSegmented(LocalAudioTrackExecutor executor, AudioFormat format, Map<String, String> params, List<String> segments) throws Exception {
+		var loaders = new ArrayList<Callable<ByteBuffer>>(segments.size());
+		for (var i = 0; i < segments.size(); i++) {
+			var segmentParams = new HashMap<>(params);
+			segmentParams.put("text", segments.get(i));
+			// only the last segment should end with the configured silence
+			if (i < segments.size() - 1 && segmentParams.containsKey("silence")) {
+				segmentParams.put("silence", "0");
+			}
+			loaders.add(() -> {
+				try (var httpInterface = this.sourceManager.getHttpInterface()) {
+					return this.loadClip(httpInterface, segmentParams);
+				}
+			});
+		}
+
+		log.debug("Synthesizing TTS text in {} segments", segments.size());
+		try (var stream = new SegmentedInputStream(this.sourceManager.getExecutor(), loaders, FloweryTTSSourceManager.SEGMENT_LOOKAHEAD)) {
+			processDelegate(format.trackFactory.apply(this.trackInfo, stream), executor);
+		}
+	}
+
+	private ByteBuffer loadClip(HttpInterface httpInterface, Map<String, String> params) throws IOException, URISyntaxException {
+		var cache = this.sourceManager.getCache();
+		var key = cache == null ? null : FloweryTTSCache.key(params);
+		if (cache != null) {
+			var clip = cache.get(key);
+			if (clip != null) {
+				log.debug("Playing cached TTS clip {}", key);
+				return clip;
+			}
+		}
+
+		var url = buildUri(params);
+		log.debug("Requesting TTS URL \"{}\"", url);
+		var data = this.download(httpInterface, url);
+		if (cache != null) {
+			cache.put(key, data);
+		}
+		return ByteBuffer.wrap(data);
+	}
+
+	private static URI buildUri(Map<String, String> params) throws URISyntaxException {
+		var apiUri = new URIBuilder(API_BASE);
+		for (var entry : params.entrySet()) {
+			apiUri.addParameter(entry.getKey(), entry.getValue());
+		}
+		return apiUri.build();
+	}
+
+	/**
+	 * Resolves the text and the default config overridden by the query parameters of the identifier, values which are not set are left out.
+	 */
+	private Map<String, String> resolveParams() throws URISyntaxException {
+		var queryParams = new URIBuilder(this.trackInfo.identifier).getQueryParams()
+			.stream()
+			.collect(Collectors.toMap(NameValuePair::getName, NameValuePair::getValue));
+
+		var params = new HashMap<String, String>();
+		params.put("text", this.trackInfo.title);
+		for (var entry : this.sourceManager.getDefaultConfig().entrySet()) {
+			var value = queryParams.getOrDefault(entry.getKey(), entry.getValue());
+			if (value == null) {
+				continue;
+			}
+			params.put(entry.getKey(), value);
+		}
+		return params;
+	}
 
-			try (var stream = new PersistentHttpStream(httpInterface, url, Units.CONTENT_LENGTH_UNKNOWN)) {
-				InternalAudioTrack track = format.trackFactory.apply(this.trackInfo, stream);
-				processDelegate(track, executor);
+	private byte[] download(HttpInterface httpInterface, URI url) throws IOException {
+		try (var response = httpInterface.execute(new HttpGet(url))) {
+			var statusCode = response.getStatusLine().getStatusCode();
+			if (!HttpClientTools.isSuccessWithContent(statusCode)) {
+				throw new IOException("Unexpected status code from TTS api: " + statusCode);
 			}
+			return IOUtils.toByteArray(response.getEntity().getContent());
 		}
 	}
 
@@ -78,19 +179,22 @@ public class FloweryTTSAudioTrack extends DelegatedAudioTrack {
 		return this.sourceManager;
 	}
 
-	private enum AudioFormat {
-		MP3("mp3", Mp3AudioTrack::new),
-		OGG_OPUS("ogg_opus", OggAudioTrack::new),
-		OGG_VORBIS("ogg_vorbis", OggAudioTrack::new),
-		WAV("wav", WavAudioTrack::new),
-		FLAC("flac", FlacAudioTrack::new),
-		AAC("aac", AdtsAudioTrack::new);
+	enum AudioFormat {
+		MP3("mp3", true, Mp3AudioTrack::new),
+		OGG_OPUS("ogg_opus", true, OggAudioTrack::new),
+		OGG_VORBIS("ogg_vorbis", true, OggAudioTrack::new),
+		WAV("wav", false, WavAudioTrack::new),
+		FLAC("flac", false, FlacAudioTrack::new),
+		AAC("aac", true, AdtsAudioTrack::new);
 
 		private final String name;
-		private final BiFunction<AudioTrackInfo, PersistentHttpStream, InternalAudioTrack> trackFactory;
+		// whether clips of this format can be concatenated into one playable stream
+		final boolean segmentable;
+		private final BiFunction<AudioTrackInfo, SeekableInputStream, InternalAudioTrack> trackFactory;
 
-		AudioFormat(String name, BiFunction<AudioTrackInfo, PersistentHttpStream, InternalAudioTrack> trackFactory) {
+		AudioFormat(String name, boolean segmentable, BiFunction<AudioTrackInfo, SeekableInputStream, InternalAudioTrack> trackFactory) {
 			this.name = name;
+			this.segmentable = segmentable;
 			this.trackFactory = trackFactory;
 		}
 
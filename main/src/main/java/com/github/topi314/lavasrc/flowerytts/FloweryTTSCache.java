@@ -0,0 +1,196 @@
+package com.github.topi314.lavasrc.flowerytts;
+
+import com.github.topi314.lavasrc.cache.ExpiringCache;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Content addressed cache for synthesized clips, keyed by a hash of the resolved request parameters.
+ * Small clips are kept in memory, every clip is also written to the disk tier if a directory is configured, which is read through memory mapped files.
+ */
+public class FloweryTTSCache {
+
+	public static final int MEMORY_MAX_CLIP_SIZE = 512 * 1024;
+	public static final Duration MEMORY_TTL = Duration.ofHours(6);
+
+	private static final Logger log = LoggerFactory.getLogger(FloweryTTSCache.class);
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	@Nullable
+	private final ExpiringCache<String, byte[]> memory;
+	@Nullable
+	private final Path directory;
+	private final long maxDiskSize;
+	private final AtomicLong diskSize = new AtomicLong();
+
+	/**
+	 * @param memorySize  max amount of clips kept in memory, 0 disables the memory tier
+	 * @param directory   directory of the disk tier or null to disable it
+	 * @param maxDiskSize max bytes stored in the disk tier before the oldest clips are removed, 0 for no limit
+	 */
+	public FloweryTTSCache(int memorySize, @Nullable Path directory, long maxDiskSize) throws IOException {
+		this.memory = memorySize > 0 ? new ExpiringCache<>(memorySize, MEMORY_TTL) : null;
+		this.directory = directory;
+		this.maxDiskSize = maxDiskSize;
+		if (directory != null) {
+			Files.createDirectories(directory);
+			try (var files = Files.list(directory)) {
+				for (var file : files.collect(Collectors.toList())) {
+					// leftovers of writes which were interrupted by a shutdown
+					if (isTemporary(file)) {
+						Files.deleteIfExists(file);
+					} else {
+						this.diskSize.addAndGet(sizeOf(file));
+					}
+				}
+			}
+		}
+	}
+
+	public static String key(Map<String, String> params) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		for (var entry : new TreeMap<>(params).entrySet()) {
+			if (entry.getValue() == null) {
+				continue;
+			}
+			digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(entry.getValue().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+
+		var hash = digest.digest();
+		var key = new char[hash.length * 2];
+		for (var i = 0; i < hash.length; i++) {
+			key[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+			key[i * 2 + 1] = HEX[hash[i] & 0xF];
+		}
+		return new String(key);
+	}
+
+	@Nullable
+	public ByteBuffer get(String key) {
+		if (this.memory != null) {
+			var clip = this.memory.get(key);
+			if (clip != null) {
+				return ByteBuffer.wrap(clip).asReadOnlyBuffer();
+			}
+		}
+		if (this.directory == null) {
+			return null;
+		}
+
+		var file = this.directory.resolve(key);
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// the mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			log.debug("Failed to map cached clip {}", file, e);
+			return null;
+		}
+	}
+
+	public void put(String key, byte[] clip) {
+		if (this.memory != null && clip.length <= MEMORY_MAX_CLIP_SIZE) {
+			this.memory.put(key, clip);
+		}
+		if (this.directory == null) {
+			return;
+		}
+
+		var file = this.directory.resolve(key);
+		long replacedSize;
+		try {
+			var tmp = Files.createTempFile(this.directory, key, TEMP_SUFFIX);
+			Files.write(tmp, clip);
+			replacedSize = sizeOf(file);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			log.warn("Failed to write clip {} to the disk cache", file, e);
+			return;
+		}
+		if (this.diskSize.addAndGet(clip.length - replacedSize) > this.maxDiskSize && this.maxDiskSize > 0) {
+			this.trimDisk();
+		}
+	}
+
+	private synchronized void trimDisk() {
+		if (this.diskSize.get() <= this.maxDiskSize) {
+			return;
+		}
+		try (var files = Files.list(this.directory)) {
+			var oldest = files.filter(file -> !isTemporary(file)).sorted(Comparator.comparingLong(FloweryTTSCache::lastModified)).collect(Collectors.toList());
+			for (var file : oldest) {
+				if (this.diskSize.get() <= this.maxDiskSize * 3 / 4) {
+					break;
+				}
+				var size = sizeOf(file);
+				if (Files.deleteIfExists(file)) {
+					this.diskSize.addAndGet(-size);
+				}
+			}
+		} catch (IOException e) {
+			log.warn("Failed to trim the disk cache in {}", this.directory, e);
+		}
+	}
+
+	public void clear() {
+		if (this.memory != null) {
+			this.memory.clear();
+		}
+		if (this.directory == null) {
+			return;
+		}
+		try (var files = Files.list(this.directory)) {
+			for (var file : files.collect(Collectors.toList())) {
+				Files.deleteIfExists(file);
+			}
+			this.diskSize.set(0);
+		} catch (IOException e) {
+			log.warn("Failed to clear the disk cache in {}", this.directory, e);
+		}
+	}
+
+	private static boolean isTemporary(Path file) {
+		return file.getFileName().toString().endsWith(TEMP_SUFFIX);
+	}
+
+	private static long sizeOf(Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static long lastModified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+}
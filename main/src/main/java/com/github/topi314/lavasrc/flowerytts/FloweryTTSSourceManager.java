@@ -1,6 +1,7 @@
 package com.github.topi314.lavasrc.flowerytts;
 
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.DaemonThreadFactory;
 import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.tools.Units;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpClientTools;
@@ -11,7 +12,9 @@ import com.sedmelluq.discord.lavaplayer.track.AudioItem;
 import com.sedmelluq.discord.lavaplayer.track.AudioReference;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,7 +24,13 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -29,7 +38,9 @@ public class FloweryTTSSourceManager implements AudioSourceManager, HttpConfigur
 
 	public static final String TTS_PREFIX = "ftts://";
 	private static final Logger log = LoggerFactory.getLogger(FloweryTTSSourceManager.class);
-	private static final int CHAR_MAX = 2048;
+	static final int CHAR_MAX = 2048;
+	static final int SEGMENT_LOOKAHEAD = 2;
+	private static final int TEXT_MAX = CHAR_MAX * 16;
 	private static final int SILENCE_MIN = 0;
 	private static final int SILENCE_MAX = 10000;
 	private static final float SPEED_MIN = 0.5f;
@@ -41,6 +52,8 @@ public class FloweryTTSSourceManager implements AudioSourceManager, HttpConfigur
 	private int silence = 0;
 	private float speed = 1;
 	private String audioFormat = "mp3";
+	private FloweryTTSCache cache = null;
+	private final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("flowerytts"));
 
 	public FloweryTTSSourceManager() {
 	}
@@ -72,6 +85,17 @@ public class FloweryTTSSourceManager implements AudioSourceManager, HttpConfigur
 		this.audioFormat = audioFormat;
 	}
 
+	/**
+	 * Sets the cache for synthesized clips, cached clips are played without any request to the api.
+	 */
+	public void setCache(FloweryTTSCache cache) {
+		this.cache = cache;
+	}
+
+	public FloweryTTSCache getCache() {
+		return this.cache;
+	}
+
 	public Map<String, String> getDefaultConfig() {
 		return Map.of(
 			"voice", this.voice,
@@ -98,8 +122,19 @@ public class FloweryTTSSourceManager implements AudioSourceManager, HttpConfigur
 			if (text == null) {
 				return null;
 			}
+			if (text.length() > TEXT_MAX) {
+				throw new IllegalArgumentException("Character limit exceeded");
+			}
 			if (text.length() > CHAR_MAX) {
-				throw new IllegalArgumentException("Character limit per request exceeded");
+				// longer texts are synthesized in segments, which only works for formats that can be concatenated
+				var audioFormat = new URIBuilder(reference.identifier).getQueryParams().stream()
+					.filter(param -> param.getName().equals("audio_format"))
+					.map(NameValuePair::getValue)
+					.findFirst()
+					.orElse(this.audioFormat);
+				if (!FloweryTTSAudioTrack.AudioFormat.getByName(audioFormat).segmentable) {
+					throw new IllegalArgumentException("Character limit per request exceeded for audio format " + audioFormat);
+				}
 			}
 
 			return new FloweryTTSAudioTrack(
@@ -130,8 +165,55 @@ public class FloweryTTSSourceManager implements AudioSourceManager, HttpConfigur
 		return new FloweryTTSAudioTrack(trackInfo, this);
 	}
 
+	/**
+	 * Splits the text at sentence boundaries into segments of at most {@code max} characters.
+	 * The first sentence always gets its own segment so playback can start as early as possible, sentences longer than {@code max} are split at whitespace.
+	 */
+	static List<String> splitText(String text, int max) {
+		var sentences = BreakIterator.getSentenceInstance(Locale.ROOT);
+		sentences.setText(text);
+
+		var segments = new ArrayList<String>();
+		var start = 0;
+		var end = 0;
+		for (var boundary = sentences.next(); boundary != BreakIterator.DONE; boundary = sentences.next()) {
+			if (end > start && (segments.isEmpty() || boundary - start > max)) {
+				addSegment(segments, text.substring(start, end), max);
+				start = end;
+			}
+			end = boundary;
+		}
+		if (end > start) {
+			addSegment(segments, text.substring(start, end), max);
+		}
+		return segments;
+	}
+
+	private static void addSegment(List<String> segments, String segment, int max) {
+		while (segment.length() > max) {
+			var cut = segment.lastIndexOf(' ', max);
+			if (cut <= 0) {
+				cut = max;
+			}
+			var part = segment.substring(0, cut).trim();
+			if (!part.isEmpty()) {
+				segments.add(part);
+			}
+			segment = segment.substring(cut);
+		}
+		segment = segment.trim();
+		if (!segment.isEmpty()) {
+			segments.add(segment);
+		}
+	}
+
+	ExecutorService getExecutor() {
+		return this.executor;
+	}
+
 	@Override
 	public void shutdown() {
+		this.executor.shutdownNow();
 		try {
 			this.httpInterfaceManager.close();
 		} catch (IOException e) {
@@ -0,0 +1,129 @@
+package com.github.topi314.lavasrc.flowerytts;
+
+import com.sedmelluq.discord.lavaplayer.tools.Units;
+import com.sedmelluq.discord.lavaplayer.tools.io.SeekableInputStream;
+import com.sedmelluq.discord.lavaplayer.track.info.AudioTrackInfoProvider;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Plays segments back to back while the following segments are loaded concurrently.
+ * At most {@code lookahead} segments are loading or waiting to be read at any time, seeking is only possible forward.
+ */
+class SegmentedInputStream extends SeekableInputStream {
+
+	private final ExecutorService executor;
+	private final List<Callable<ByteBuffer>> segments;
+	private final int lookahead;
+	private final ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+	private int submitted;
+	private ByteBuffer current;
+	private long position;
+
+	SegmentedInputStream(ExecutorService executor, List<Callable<ByteBuffer>> segments, int lookahead) {
+		super(Units.CONTENT_LENGTH_UNKNOWN, Long.MAX_VALUE);
+		this.executor = executor;
+		this.segments = segments;
+		this.lookahead = Math.max(lookahead, 1);
+		this.submitNext();
+	}
+
+	private void submitNext() {
+		while (this.submitted < this.segments.size() && this.pending.size() < this.lookahead) {
+			this.pending.add(this.executor.submit(this.segments.get(this.submitted++)));
+		}
+	}
+
+	private boolean nextSegment() throws IOException {
+		while (this.current == null || !this.current.hasRemaining()) {
+			var next = this.pending.poll();
+			if (next == null) {
+				return false;
+			}
+			this.submitNext();
+			try {
+				this.current = next.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			} catch (ExecutionException e) {
+				throw new IOException("Failed to load segment", e.getCause());
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!this.nextSegment()) {
+			return -1;
+		}
+		this.position++;
+		return this.current.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!this.nextSegment()) {
+			return -1;
+		}
+		var count = Math.min(len, this.current.remaining());
+		this.current.get(b, off, count);
+		this.position += count;
+		return count;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		var skipped = 0L;
+		while (skipped < n && this.nextSegment()) {
+			var count = (int) Math.min(n - skipped, this.current.remaining());
+			this.current.position(this.current.position() + count);
+			skipped += count;
+		}
+		this.position += skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return this.current == null ? 0 : this.current.remaining();
+	}
+
+	@Override
+	public long getPosition() {
+		return this.position;
+	}
+
+	@Override
+	protected void seekHard(long position) throws IOException {
+		throw new IOException("Cannot seek backwards in a segmented stream");
+	}
+
+	@Override
+	public boolean canSeekHard() {
+		return false;
+	}
+
+	@Override
+	public List<AudioTrackInfoProvider> getTrackInfoProviders() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void close() {
+		for (var future : this.pending) {
+			future.cancel(true);
+		}
+		this.pending.clear();
+	}
+}
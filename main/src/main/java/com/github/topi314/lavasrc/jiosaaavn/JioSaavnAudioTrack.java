@@ -3,7 +3,6 @@ package com.github.topi314.lavasrc.jiosaaavn;
 
 import com.github.topi314.lavasrc.ExtendedAudioTrack;
 import com.sedmelluq.discord.lavaplayer.container.mpeg.MpegAudioTrack;
-import com.sedmelluq.discord.lavaplayer.tools.JsonBrowser;
 import com.sedmelluq.discord.lavaplayer.tools.Units;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpInterface;
 import com.sedmelluq.discord.lavaplayer.tools.io.PersistentHttpStream;
@@ -12,15 +11,10 @@ import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
 import com.sedmelluq.discord.lavaplayer.track.InternalAudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
-import org.apache.commons.io.IOUtils;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 
 public class JioSaavnAudioTrack extends ExtendedAudioTrack {
 	protected static final Logger log = LoggerFactory.getLogger(JioSaavnAudioTrack.class);
@@ -50,10 +44,11 @@ public class JioSaavnAudioTrack extends ExtendedAudioTrack {
 
 	protected void loadStream(LocalAudioTrackExecutor localExecutor, HttpInterface httpInterface) throws Exception {
 		final String trackUrl = getPlaybackUrl();
-		try (PersistentHttpStream stream = new PersistentHttpStream(httpInterface, new URI(trackUrl), this.getTrackDuration())) {
+		try (PersistentHttpStream stream = new PersistentHttpStream(httpInterface, new URI(trackUrl), Units.CONTENT_LENGTH_UNKNOWN)) {
 			processDelegate(createAudioTrack(this.trackInfo, stream), localExecutor);
 		} catch (Exception e) {
 			log.error("Failed to load track from URL: {}", trackUrl, e);
+			this.sourceManager.invalidateDownloadUrl(this.trackInfo.identifier);
 			throw e;
 		}
 	}
@@ -63,74 +58,11 @@ public class JioSaavnAudioTrack extends ExtendedAudioTrack {
 	}
 
 	public String getPlaybackUrl() {
-		return getDownloadURL(this.trackInfo.identifier);
-	}
-
-	private String getDownloadURL(String identifier) {
-		// Fetch JSON data from the API
-		var json = fetchJson(JioSavaanSourceManager.BASE_API + "/songs?ids=" + identifier, this.sourceManager);
-
-		// Extract the download URL information
-		var downloadInfoLink = json.get("data").index(0).get("downloadUrl");
-
-		if (downloadInfoLink.isNull()) {
-			return null;
-		}
-
-		// Retrieve all download URLs
-		var downloadUrls = downloadInfoLink.values();
-		if (downloadUrls.isEmpty()) {
-			return null;
-		}
-
-		String downloadUrl = null;
-
-		// Check for the desired quality in descending order
-		for (var url : downloadUrls) {
-			if (url.get("quality").text().equals("320kbps")) {
-				downloadUrl = url.get("url").text();
-				break;
-			}
-		}
-		if (downloadUrl == null) {
-			for (var url : downloadUrls) {
-				if (url.get("quality").text().equals("160kbps")) {
-					downloadUrl = url.get("url").text();
-					break;
-				}
-			}
-		}
-		if (downloadUrl == null) {
-			for (var url : downloadUrls) {
-				if (url.get("quality").text().equals("96kbps")) {
-					downloadUrl = url.get("url").text();
-					break;
-				}
-			}
-		}
-		if (downloadUrl == null && !downloadUrls.isEmpty()) {
-			downloadUrl = downloadUrls.get(0).get("url").text();
-		}
-
-		return downloadUrl;
-	}
-
-	protected long getTrackDuration() {
-		return Units.CONTENT_LENGTH_UNKNOWN;
+		return this.sourceManager.getDownloadUrl(this.trackInfo.identifier);
 	}
 
 	@Override
 	protected AudioTrack makeShallowClone() {
-		return new JioSaavnAudioTrack(this.trackInfo, this.sourceManager);
-	}
-
-	public static JsonBrowser fetchJson(String pageURl, JioSavaanSourceManager sourceManager) {
-		final HttpGet httpGet = new HttpGet(pageURl);
-		try (final CloseableHttpResponse response = sourceManager.getInterface().execute(httpGet)) {
-			final String content = IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8);
-			return JsonBrowser.parse(content);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
+		return new JioSaavnAudioTrack(this.trackInfo, this.albumName, this.albumUrl, this.artistUrl, this.artistArtworkUrl, this.previewUrl, this.isPreview, this.sourceManager);
 	}
 }
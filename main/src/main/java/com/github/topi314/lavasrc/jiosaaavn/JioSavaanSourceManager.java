@@ -2,6 +2,8 @@ package com.github.topi314.lavasrc.jiosaaavn;
 
 import com.github.topi314.lavasrc.ExtendedAudioPlaylist;
 import com.github.topi314.lavasrc.ExtendedAudioSourceManager;
+import com.github.topi314.lavasrc.LavaSrcTools;
+import com.github.topi314.lavasrc.cache.ExpiringCache;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.tools.ExceptionTools;
 import com.sedmelluq.discord.lavaplayer.tools.JsonBrowser;
@@ -9,8 +11,6 @@ import com.sedmelluq.discord.lavaplayer.tools.io.HttpClientTools;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpInterface;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpInterfaceManager;
 import com.sedmelluq.discord.lavaplayer.track.*;
-import org.apache.commons.io.IOUtils;
-import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 
 import java.io.DataInput;
@@ -18,17 +18,21 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class JioSavaanSourceManager extends ExtendedAudioSourceManager {
+
 	public static final Pattern URL_PATTERN = Pattern.compile("(https?://)(www\\.)?jiosaavn\\.com/(song|album|featured|artist|s/playlist)/([a-zA-Z0-9-_]+)(/([a-zA-Z0-9-_]+))?");
 	public static final String BASE_API = "https://saavn.dev/api";
 	public static final String SEARCH_PREFIX = "jssearch:";
 	public static final String RECOMMENDATIONS_PREFIX = "jsrec:";
+	public static final Duration DOWNLOAD_URL_TTL = Duration.ofMinutes(30);
 	public final HttpInterfaceManager httpInterfaceManager;
+	private final ExpiringCache<String, String> downloadUrls = new ExpiringCache<>(1000, DOWNLOAD_URL_TTL);
 
 	public JioSavaanSourceManager() {
 		this.httpInterfaceManager = HttpClientTools.createDefaultThreadLocalManager();
@@ -43,7 +47,8 @@ public class JioSavaanSourceManager extends ExtendedAudioSourceManager {
 	public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference) {
 		try {
 			if (reference.identifier.startsWith(SEARCH_PREFIX)) {
-				return this.getSearchResult(reference.identifier.substring(SEARCH_PREFIX.length()));
+				var query = reference.identifier.substring(SEARCH_PREFIX.length());
+				return this.cachedSearch(query, () -> this.getSearchResult(query));
 			}
 			if (reference.identifier.startsWith(RECOMMENDATIONS_PREFIX)) {
 				return this.getRecommendations(reference.identifier.substring(RECOMMENDATIONS_PREFIX.length()));
@@ -89,7 +94,12 @@ public class JioSavaanSourceManager extends ExtendedAudioSourceManager {
 
 	@Override
 	public AudioTrack decodeTrack(AudioTrackInfo audioTrackInfo, DataInput dataInput) {
-		return new JioSaavnAudioTrack(audioTrackInfo, this);
+		return this.createTrack(audioTrackInfo, null);
+	}
+
+	@Override
+	protected AudioTrack createTrack(AudioTrackInfo trackInfo, ExtendedAudioTrackInfo extendedAudioTrackInfo) {
+		return new JioSaavnAudioTrack(trackInfo, this);
 	}
 
 	private AudioItem getSearchResult(String query) throws IOException {
@@ -220,15 +230,75 @@ public class JioSavaanSourceManager extends ExtendedAudioSourceManager {
 	}
 
 	public JsonBrowser fetchJson(String pageURl) {
-		final HttpGet httpGet = new HttpGet(BASE_API + pageURl);
-		try (final CloseableHttpResponse response = this.getInterface().execute(httpGet)) {
-			final String content = IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8);
-			return JsonBrowser.parse(content);
+		try {
+			var json = LavaSrcTools.fetchResponseAsJson(this.getInterface(), new HttpGet(BASE_API + pageURl));
+			return json == null ? JsonBrowser.NULL_BROWSER : json;
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * @return the best quality download url of the track, cached for {@link #DOWNLOAD_URL_TTL} from the last load which included it
+	 */
+	public String getDownloadUrl(String id) {
+		var downloadUrl = this.downloadUrls.get(id);
+		if (downloadUrl != null) {
+			return downloadUrl;
+		}
+		var json = this.fetchJson("/songs?ids=" + id);
+		downloadUrl = this.cacheDownloadUrl(id, json.get("data").index(0).get("downloadUrl"));
+		if (downloadUrl == null) {
+			throw new IllegalStateException("No download URL found for track " + id);
+		}
+		return downloadUrl;
+	}
+
+	public void invalidateDownloadUrl(String id) {
+		this.downloadUrls.invalidate(id);
+	}
+
+	private String cacheDownloadUrl(String id, JsonBrowser downloadUrls) {
+		var downloadUrl = selectDownloadUrl(downloadUrls);
+		if (downloadUrl != null) {
+			this.downloadUrls.put(id, downloadUrl);
+		}
+		return downloadUrl;
+	}
+
+	/**
+	 * Picks the url with the highest bitrate in a single pass, qualities look like {@code 320kbps}.
+	 * Falls back to the first url if no quality can be parsed.
+	 */
+	private static String selectDownloadUrl(JsonBrowser downloadUrls) {
+		String downloadUrl = null;
+		var bestBitrate = -1;
+		for (var item : downloadUrls.values()) {
+			var url = item.get("url").text();
+			if (url == null) {
+				continue;
+			}
+			var bitrate = parseBitrate(item.get("quality").text());
+			if (downloadUrl == null || bitrate > bestBitrate) {
+				downloadUrl = url;
+				bestBitrate = bitrate;
+			}
+		}
+		return downloadUrl;
+	}
+
+	private static int parseBitrate(String quality) {
+		if (quality == null) {
+			return -1;
+		}
+		var bitrate = 0;
+		var i = 0;
+		while (i < quality.length() && quality.charAt(i) >= '0' && quality.charAt(i) <= '9') {
+			bitrate = bitrate * 10 + (quality.charAt(i++) - '0');
+		}
+		return i == 0 ? -1 : bitrate;
+	}
+
 	private List<AudioTrack> buildTracks(JsonBrowser json) {
 		var tracks = new ArrayList<AudioTrack>();
 		for (var track : json.values()) {
@@ -251,6 +321,7 @@ public class JioSavaanSourceManager extends ExtendedAudioSourceManager {
 		final long duration = data.get("duration").asLong(1) * 1000;
 		final String url = data.get("url").text();
 		var artist = cleanString(this.parseArtist(data));
+		this.cacheDownloadUrl(id, data.get("downloadUrl"));
 		return new JioSaavnAudioTrack(
 			new AudioTrackInfo(
 				title,
@@ -0,0 +1,193 @@
+package com.github.topi314.lavasrc.lyrics;
+
+import com.github.topi314.lavalyrics.lyrics.AudioLyrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Immutable copy of {@link AudioLyrics} which keeps the lines in flat arrays instead of one object per line.
+ * The timestamps are indexed, so the line at a playback position can be looked up without scanning all lines.
+ */
+public class CachedAudioLyrics implements AudioLyrics {
+
+	public static final long NO_DURATION = -1;
+	public static final long NO_CHANGE = -1;
+
+	private final String sourceName;
+	private final String provider;
+	private final String text;
+	private final long[] timestamps;
+	private final long[] durations;
+	private final String[] lines;
+
+	private CachedAudioLyrics(String sourceName, String provider, String text, long[] timestamps, long[] durations, String[] lines) {
+		this.sourceName = sourceName;
+		this.provider = provider;
+		this.text = text;
+		this.timestamps = timestamps;
+		this.durations = durations;
+		this.lines = lines;
+	}
+
+	public static CachedAudioLyrics of(@NotNull AudioLyrics lyrics) {
+		if (lyrics instanceof CachedAudioLyrics) {
+			return (CachedAudioLyrics) lyrics;
+		}
+
+		var lines = lyrics.getLines();
+		if (lines == null) {
+			return new CachedAudioLyrics(lyrics.getSourceName(), lyrics.getProvider(), lyrics.getText(), null, null, null);
+		}
+
+		var timestamps = new long[lines.size()];
+		var durations = new long[lines.size()];
+		var texts = new String[lines.size()];
+		for (var i = 0; i < lines.size(); i++) {
+			var line = lines.get(i);
+			timestamps[i] = line.getTimestamp().toMillis();
+			durations[i] = line.getDuration() == null ? NO_DURATION : line.getDuration().toMillis();
+			texts[i] = line.getLine();
+		}
+		return new CachedAudioLyrics(lyrics.getSourceName(), lyrics.getProvider(), lyrics.getText(), timestamps, durations, texts);
+	}
+
+	@NotNull
+	@Override
+	public String getSourceName() {
+		return this.sourceName;
+	}
+
+	@Nullable
+	@Override
+	public String getProvider() {
+		return this.provider;
+	}
+
+	@Nullable
+	@Override
+	public String getText() {
+		return this.text;
+	}
+
+	@Nullable
+	@Override
+	public List<Line> getLines() {
+		if (this.lines == null) {
+			return null;
+		}
+		return new Lines();
+	}
+
+	/**
+	 * @return the amount of timed lines, 0 if the lyrics have no lines
+	 */
+	public int size() {
+		return this.lines == null ? 0 : this.lines.length;
+	}
+
+	public long getTimestamp(int index) {
+		return this.timestamps[index];
+	}
+
+	/**
+	 * @return the duration of the line in milliseconds or {@link #NO_DURATION}
+	 */
+	public long getDuration(int index) {
+		return this.durations[index];
+	}
+
+	public String getLine(int index) {
+		return this.lines[index];
+	}
+
+	/**
+	 * @param position playback position in milliseconds
+	 * @return the index of the last line which started at or before the position, -1 if the first line didn't start yet
+	 */
+	public int indexAt(long position) {
+		var low = 0;
+		var high = this.size() - 1;
+		while (low <= high) {
+			var mid = (low + high) >>> 1;
+			if (this.timestamps[mid] <= position) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	@Nullable
+	public Line lineAt(long position) {
+		var index = this.indexAt(position);
+		if (index < 0) {
+			return null;
+		}
+		return new CachedLine(this.timestamps[index], this.durations[index], this.lines[index]);
+	}
+
+	/**
+	 * @param position playback position in milliseconds
+	 * @return the position at which the active line changes next, either because the next line starts or the current one ends, or {@link #NO_CHANGE}
+	 */
+	public long nextChangeAt(long position) {
+		var index = this.indexAt(position);
+		var next = index + 1 < this.size() ? this.timestamps[index + 1] : NO_CHANGE;
+		if (index >= 0 && this.durations[index] != NO_DURATION) {
+			var end = this.timestamps[index] + this.durations[index];
+			if (end > position && (next == NO_CHANGE || end < next)) {
+				return end;
+			}
+		}
+		return next;
+	}
+
+	private class Lines extends AbstractList<Line> {
+
+		@Override
+		public Line get(int index) {
+			return new CachedLine(timestamps[index], durations[index], lines[index]);
+		}
+
+		@Override
+		public int size() {
+			return lines.length;
+		}
+	}
+
+	private static class CachedLine implements Line {
+
+		private final long timestamp;
+		private final long duration;
+		private final String line;
+
+		private CachedLine(long timestamp, long duration, String line) {
+			this.timestamp = timestamp;
+			this.duration = duration;
+			this.line = line;
+		}
+
+		@NotNull
+		@Override
+		public Duration getTimestamp() {
+			return Duration.ofMillis(this.timestamp);
+		}
+
+		@Nullable
+		@Override
+		public Duration getDuration() {
+			return this.duration == NO_DURATION ? null : Duration.ofMillis(this.duration);
+		}
+
+		@NotNull
+		@Override
+		public String getLine() {
+			return this.line;
+		}
+	}
+}
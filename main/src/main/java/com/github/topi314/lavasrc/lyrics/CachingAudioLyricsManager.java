@@ -0,0 +1,52 @@
+package com.github.topi314.lavasrc.lyrics;
+
+import com.github.topi314.lavalyrics.AudioLyricsManager;
+import com.github.topi314.lavalyrics.lyrics.AudioLyrics;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Wraps an {@link AudioLyricsManager} and answers repeated lookups for the same track from a {@link LyricsCache}.
+ */
+public class CachingAudioLyricsManager implements AudioLyricsManager {
+
+	private final AudioLyricsManager delegate;
+	private final LyricsCache cache;
+
+	public CachingAudioLyricsManager(AudioLyricsManager delegate, LyricsCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	public AudioLyricsManager getDelegate() {
+		return this.delegate;
+	}
+
+	public LyricsCache getCache() {
+		return this.cache;
+	}
+
+	@NotNull
+	@Override
+	public String getSourceName() {
+		return this.delegate.getSourceName();
+	}
+
+	@Nullable
+	@Override
+	public AudioLyrics loadLyrics(@NotNull AudioTrack track) {
+		var cached = this.cache.get(this.getSourceName(), track);
+		if (cached != null) {
+			return cached.orElse(null);
+		}
+
+		var lyrics = this.delegate.loadLyrics(track);
+		return this.cache.put(this.getSourceName(), track, lyrics);
+	}
+
+	@Override
+	public void shutdown() {
+		this.delegate.shutdown();
+	}
+}
@@ -0,0 +1,144 @@
+package com.github.topi314.lavasrc.lyrics;
+
+import com.github.topi314.lavalyrics.AudioLyricsManager;
+import com.github.topi314.lavalyrics.lyrics.AudioLyrics;
+import com.sedmelluq.discord.lavaplayer.tools.DaemonThreadFactory;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Asks multiple lyrics managers for the same track in priority order.
+ * The first provider is asked right away, every following provider is started once the previous ones took longer than the hedge delay or returned nothing.
+ * The first synced result wins, otherwise the plain result of the highest priority provider which answered before the deadline is returned.
+ */
+public class FederatedLyricsManager implements AudioLyricsManager {
+
+	public static final String SOURCE_NAME = "lavasrc";
+	public static final Duration DEFAULT_HEDGE_DELAY = Duration.ofMillis(300);
+	public static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(5);
+
+	private static final Logger log = LoggerFactory.getLogger(FederatedLyricsManager.class);
+
+	private final List<AudioLyricsManager> providers;
+	private final long hedgeDelayNanos;
+	private final long deadlineNanos;
+	private final ExecutorService executor;
+
+	public FederatedLyricsManager(List<AudioLyricsManager> providers) {
+		this(providers, DEFAULT_HEDGE_DELAY, DEFAULT_DEADLINE);
+	}
+
+	public FederatedLyricsManager(List<AudioLyricsManager> providers, Duration hedgeDelay, Duration deadline) {
+		this.providers = List.copyOf(providers);
+		this.hedgeDelayNanos = hedgeDelay.toNanos();
+		this.deadlineNanos = deadline.toNanos();
+		this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("lyrics"));
+	}
+
+	public List<AudioLyricsManager> getProviders() {
+		return this.providers;
+	}
+
+	@NotNull
+	@Override
+	public String getSourceName() {
+		return SOURCE_NAME;
+	}
+
+	@Nullable
+	@Override
+	public AudioLyrics loadLyrics(@NotNull AudioTrack track) {
+		var providers = LyricsProviders.orderFor(this.providers, track);
+		if (providers.isEmpty()) {
+			return null;
+		}
+
+		var results = new LinkedBlockingQueue<Result>();
+		var tasks = new ArrayList<Future<?>>(providers.size());
+		var deadline = System.nanoTime() + this.deadlineNanos;
+		AudioLyrics best = null;
+		var bestPriority = Integer.MAX_VALUE;
+		var pending = 0;
+
+		try {
+			tasks.add(this.submit(providers, 0, track, results));
+			pending++;
+			var nextHedge = System.nanoTime() + this.hedgeDelayNanos;
+
+			while (pending > 0 || tasks.size() < providers.size()) {
+				var now = System.nanoTime();
+				if (now >= deadline) {
+					log.debug("Lyrics deadline reached for track {} with {} providers pending", track.getIdentifier(), pending);
+					break;
+				}
+				if (tasks.size() < providers.size() && (pending == 0 || now >= nextHedge)) {
+					tasks.add(this.submit(providers, tasks.size(), track, results));
+					pending++;
+					nextHedge = now + this.hedgeDelayNanos;
+					continue;
+				}
+
+				var waitUntil = tasks.size() < providers.size() ? Math.min(nextHedge, deadline) : deadline;
+				var result = results.poll(waitUntil - now, TimeUnit.NANOSECONDS);
+				if (result == null) {
+					continue;
+				}
+				pending--;
+				if (result.lyrics == null) {
+					continue;
+				}
+				if (result.lyrics.getLines() != null && !result.lyrics.getLines().isEmpty()) {
+					return result.lyrics;
+				}
+				if (result.priority < bestPriority) {
+					best = result.lyrics;
+					bestPriority = result.priority;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			for (var task : tasks) {
+				task.cancel(true);
+			}
+		}
+		return best;
+	}
+
+	private Future<?> submit(List<AudioLyricsManager> providers, int priority, AudioTrack track, BlockingQueue<Result> results) {
+		var provider = providers.get(priority);
+		return this.executor.submit(() -> {
+			AudioLyrics lyrics = null;
+			try {
+				lyrics = provider.loadLyrics(track);
+			} catch (Exception e) {
+				log.debug("Failed to load lyrics from {} for track {}", provider.getSourceName(), track.getIdentifier(), e);
+			}
+			results.add(new Result(priority, lyrics));
+		});
+	}
+
+	@Override
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	private static class Result {
+
+		private final int priority;
+		private final AudioLyrics lyrics;
+
+		private Result(int priority, AudioLyrics lyrics) {
+			this.priority = priority;
+			this.lyrics = lyrics;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.github.topi314.lavasrc.lyrics;
+
+import com.github.topi314.lavalyrics.lyrics.AudioLyrics;
+import com.github.topi314.lavasrc.cache.ExpiringCache;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded cache of lyrics lookups keyed by lyrics source and track, shared by all {@link CachingAudioLyricsManager}s.
+ * Tracks without lyrics are cached as well, so rate limited lyrics endpoints are not asked again for them.
+ */
+public class LyricsCache {
+
+	public static final int DEFAULT_MAX_SIZE = 1000;
+	public static final Duration DEFAULT_TTL = Duration.ofHours(1);
+	public static final Duration DEFAULT_NOT_FOUND_TTL = Duration.ofMinutes(10);
+
+	private final ExpiringCache<String, Optional<CachedAudioLyrics>> cache;
+	private final Duration ttl;
+	private final Duration notFoundTtl;
+
+	public LyricsCache() {
+		this(DEFAULT_MAX_SIZE, DEFAULT_TTL, DEFAULT_NOT_FOUND_TTL);
+	}
+
+	public LyricsCache(int maxSize, Duration ttl, Duration notFoundTtl) {
+		this.cache = new ExpiringCache<>(maxSize, ttl);
+		this.ttl = ttl;
+		this.notFoundTtl = notFoundTtl;
+	}
+
+	/**
+	 * @return {@code null} if nothing is cached, an empty optional if the source has no lyrics for the track
+	 */
+	@Nullable
+	public Optional<CachedAudioLyrics> get(@NotNull String sourceName, @NotNull AudioTrack track) {
+		return this.cache.get(key(sourceName, track));
+	}
+
+	@Nullable
+	public CachedAudioLyrics put(@NotNull String sourceName, @NotNull AudioTrack track, @Nullable AudioLyrics lyrics) {
+		if (lyrics == null) {
+			this.cache.put(key(sourceName, track), Optional.empty(), this.notFoundTtl);
+			return null;
+		}
+		var cached = CachedAudioLyrics.of(lyrics);
+		this.cache.put(key(sourceName, track), Optional.of(cached), this.ttl);
+		return cached;
+	}
+
+	public void invalidate(@NotNull String sourceName, @NotNull AudioTrack track) {
+		this.cache.invalidate(key(sourceName, track));
+	}
+
+	public void clear() {
+		this.cache.clear();
+	}
+
+	static String key(String sourceName, AudioTrack track) {
+		var isrc = track.getInfo().isrc;
+		if (isrc != null && !isrc.isEmpty()) {
+			return sourceName + ":isrc:" + isrc;
+		}
+		var trackSourceName = track.getSourceManager() == null ? "unknown" : track.getSourceManager().getSourceName();
+		return sourceName + ":" + trackSourceName + ":" + track.getIdentifier();
+	}
+}
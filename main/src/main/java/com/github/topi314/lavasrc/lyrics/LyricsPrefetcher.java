@@ -0,0 +1,50 @@
+package com.github.topi314.lavasrc.lyrics;
+
+import com.github.topi314.lavalyrics.AudioLyricsManager;
+import com.github.topi314.lavasrc.ExtendedAudioTrack;
+import com.sedmelluq.discord.lavaplayer.tools.DaemonThreadFactory;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads lyrics of LavaSrc tracks in the background, so the {@link CachingAudioLyricsManager}s already have them when a client asks.
+ * Lyrics managers are asked in the same order the lyrics endpoint would ask them, the track's own source first.
+ */
+public class LyricsPrefetcher {
+
+	private final List<AudioLyricsManager> lyricsManagers;
+	private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+	private final ExecutorService executor;
+
+	public LyricsPrefetcher(List<AudioLyricsManager> lyricsManagers) {
+		this.lyricsManagers = List.copyOf(lyricsManagers);
+		this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("lyrics-prefetch"));
+	}
+
+	public void prefetch(AudioTrack track) {
+		if (!(track instanceof ExtendedAudioTrack) || this.lyricsManagers.isEmpty()) {
+			return;
+		}
+		var key = LyricsCache.key("prefetch", track);
+		if (!this.inFlight.add(key)) {
+			return;
+		}
+
+		this.executor.execute(() -> {
+			try {
+				LyricsProviders.loadFirst(this.lyricsManagers, track);
+			} finally {
+				this.inFlight.remove(key);
+			}
+		});
+	}
+
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+}
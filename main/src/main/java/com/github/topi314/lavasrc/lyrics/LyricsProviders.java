@@ -0,0 +1,56 @@
+package com.github.topi314.lavasrc.lyrics;
+
+import com.github.topi314.lavalyrics.AudioLyricsManager;
+import com.github.topi314.lavalyrics.lyrics.AudioLyrics;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class LyricsProviders {
+
+	private static final Logger log = LoggerFactory.getLogger(LyricsProviders.class);
+
+	private LyricsProviders() {
+	}
+
+	/**
+	 * Orders the lyrics managers the same way the lyrics endpoint does, the track's own source first.
+	 */
+	public static List<AudioLyricsManager> orderFor(List<AudioLyricsManager> providers, AudioTrack track) {
+		if (track.getSourceManager() == null) {
+			return providers;
+		}
+		var trackSourceName = track.getSourceManager().getSourceName();
+		var ordered = new ArrayList<AudioLyricsManager>(providers.size());
+		for (var provider : providers) {
+			if (provider.getSourceName().equals(trackSourceName)) {
+				ordered.add(0, provider);
+			} else {
+				ordered.add(provider);
+			}
+		}
+		return ordered;
+	}
+
+	/**
+	 * @return the lyrics of the first lyrics manager which found some, failing lyrics managers are skipped
+	 */
+	@Nullable
+	public static AudioLyrics loadFirst(List<AudioLyricsManager> providers, AudioTrack track) {
+		for (var provider : orderFor(providers, track)) {
+			try {
+				var lyrics = provider.loadLyrics(track);
+				if (lyrics != null) {
+					return lyrics;
+				}
+			} catch (Exception e) {
+				log.debug("Failed to load lyrics from {} for track {}", provider.getSourceName(), track.getIdentifier(), e);
+			}
+		}
+		return null;
+	}
+}
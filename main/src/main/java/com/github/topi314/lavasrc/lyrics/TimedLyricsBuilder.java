@@ -0,0 +1,160 @@
+package com.github.topi314.lavasrc.lyrics;
+
+import com.github.topi314.lavalyrics.lyrics.AudioLyrics;
+import com.github.topi314.lavalyrics.lyrics.BasicAudioLyrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Collects timed lyrics lines into flat arrays and builds {@link BasicAudioLyrics} from them.
+ * Lines added with {@link #UNTIL_NEXT} end where the next line or {@link #boundary(long)} starts.
+ */
+public class TimedLyricsBuilder {
+
+	public static final long UNTIL_NEXT = -1;
+	public static final long UNKNOWN_END = -1;
+
+	private long[] timestamps;
+	private long[] durations;
+	private String[] lines;
+	private int size;
+
+	public TimedLyricsBuilder(int expectedLines) {
+		var capacity = Math.max(expectedLines, 1);
+		this.timestamps = new long[capacity];
+		this.durations = new long[capacity];
+		this.lines = new String[capacity];
+	}
+
+	/**
+	 * Parses LRC lines like {@code [01:23.45] text} in a single pass, lines without a timestamp are ignored.
+	 * Lines with a timestamp but without text only end the previous line.
+	 */
+	public static TimedLyricsBuilder parseLrc(@NotNull String[] lrcLines) {
+		var builder = new TimedLyricsBuilder(lrcLines.length);
+		for (var lrcLine : lrcLines) {
+			builder.addLrcLine(lrcLine);
+		}
+		return builder;
+	}
+
+	private void addLrcLine(String lrcLine) {
+		var length = lrcLine.length();
+		if (length < 7 || lrcLine.charAt(0) != '[') {
+			return;
+		}
+
+		var i = 1;
+		var minutes = 0L;
+		var start = i;
+		while (i < length && isDigit(lrcLine.charAt(i))) {
+			minutes = minutes * 10 + (lrcLine.charAt(i++) - '0');
+		}
+		if (i == start || i >= length || lrcLine.charAt(i++) != ':') {
+			return;
+		}
+
+		var seconds = 0L;
+		start = i;
+		while (i < length && isDigit(lrcLine.charAt(i))) {
+			seconds = seconds * 10 + (lrcLine.charAt(i++) - '0');
+		}
+		if (i == start || i >= length) {
+			return;
+		}
+
+		var millis = 0L;
+		if (lrcLine.charAt(i) == '.' || lrcLine.charAt(i) == ':') {
+			i++;
+			var scale = 100L;
+			while (i < length && isDigit(lrcLine.charAt(i))) {
+				millis += (lrcLine.charAt(i++) - '0') * scale;
+				scale /= 10;
+			}
+		}
+		if (i >= length || lrcLine.charAt(i++) != ']') {
+			return;
+		}
+		if (i < length && lrcLine.charAt(i) == ' ') {
+			i++;
+		}
+
+		var timestamp = minutes * 60_000 + seconds * 1000 + millis;
+		if (i >= length) {
+			this.boundary(timestamp);
+			return;
+		}
+		this.add(timestamp, UNTIL_NEXT, lrcLine.substring(i));
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	public TimedLyricsBuilder add(long timestamp, long duration, @NotNull String line) {
+		this.boundary(timestamp);
+		if (this.size == this.lines.length) {
+			var capacity = this.size * 2;
+			this.timestamps = Arrays.copyOf(this.timestamps, capacity);
+			this.durations = Arrays.copyOf(this.durations, capacity);
+			this.lines = Arrays.copyOf(this.lines, capacity);
+		}
+		this.timestamps[this.size] = timestamp;
+		this.durations[this.size] = duration;
+		this.lines[this.size] = line;
+		this.size++;
+		return this;
+	}
+
+	/**
+	 * Ends the previous line at the given timestamp if it was added with {@link #UNTIL_NEXT}.
+	 */
+	public TimedLyricsBuilder boundary(long timestamp) {
+		var last = this.size - 1;
+		if (last >= 0 && this.durations[last] == UNTIL_NEXT) {
+			this.durations[last] = Math.max(timestamp - this.timestamps[last], 0);
+		}
+		return this;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public String joinLines(@NotNull String separator) {
+		var length = 0;
+		for (var i = 0; i < this.size; i++) {
+			length += this.lines[i].length() + separator.length();
+		}
+		var text = new StringBuilder(length);
+		for (var i = 0; i < this.size; i++) {
+			if (i > 0) {
+				text.append(separator);
+			}
+			text.append(this.lines[i]);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * @param end end of the last line in milliseconds, usually the track duration, or {@link #UNKNOWN_END}
+	 */
+	public BasicAudioLyrics build(@NotNull String sourceName, @Nullable String provider, @Nullable String text, long end) {
+		if (end != UNKNOWN_END) {
+			this.boundary(end);
+		}
+		var lyrics = new ArrayList<AudioLyrics.Line>(this.size);
+		for (var i = 0; i < this.size; i++) {
+			lyrics.add(new BasicAudioLyrics.BasicLine(
+				Duration.ofMillis(this.timestamps[i]),
+				this.durations[i] == UNTIL_NEXT ? null : Duration.ofMillis(this.durations[i]),
+				this.lines[i]
+			));
+		}
+		return new BasicAudioLyrics(sourceName, provider, text, lyrics);
+	}
+}
@@ -0,0 +1,47 @@
+package com.github.topi314.lavasrc.search;
+
+import com.github.topi314.lavasearch.AudioSearchManager;
+import com.github.topi314.lavasearch.result.AudioSearchResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+/**
+ * Wraps an {@link AudioSearchManager} and answers repeated searches from a {@link SearchResultCache}.
+ */
+public class CachingAudioSearchManager implements AudioSearchManager {
+
+	private final AudioSearchManager delegate;
+	private final SearchResultCache cache;
+
+	public CachingAudioSearchManager(AudioSearchManager delegate, SearchResultCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	public AudioSearchManager getDelegate() {
+		return this.delegate;
+	}
+
+	@NotNull
+	@Override
+	public String getSourceName() {
+		return this.delegate.getSourceName();
+	}
+
+	@Nullable
+	@Override
+	public AudioSearchResult loadSearch(@NotNull String query, @NotNull Set<AudioSearchResult.Type> types) {
+		var cached = this.cache.getResult(this.getSourceName(), query, types);
+		if (cached != null) {
+			return cached;
+		}
+		return this.cache.putResult(this.getSourceName(), query, types, this.delegate.loadSearch(query, types));
+	}
+
+	@Override
+	public void shutdown() {
+		this.delegate.shutdown();
+	}
+}
@@ -0,0 +1,191 @@
+package com.github.topi314.lavasrc.search;
+
+import com.github.topi314.lavasearch.AudioSearchManager;
+import com.github.topi314.lavasearch.result.AudioSearchResult;
+import com.github.topi314.lavasearch.result.AudioText;
+import com.github.topi314.lavasearch.result.BasicAudioSearchResult;
+import com.github.topi314.lavasrc.ExtendedAudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.tools.DaemonThreadFactory;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Searches all providers in parallel for queries with the {@link #SEARCH_PREFIX} and merges their results in provider order.
+ * Tracks are deduplicated by ISRC or normalized title and author, providers which did not answer before the deadline are left out.
+ */
+public class FederatedAudioSearchManager implements AudioSearchManager {
+
+	public static final String SOURCE_NAME = "lavasrc";
+	public static final String SEARCH_PREFIX = "lssearch:";
+	public static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(3);
+
+	private static final Logger log = LoggerFactory.getLogger(FederatedAudioSearchManager.class);
+
+	private final List<Provider> providers = new ArrayList<>();
+	private final long deadlineNanos;
+	private final ExecutorService executor;
+
+	public FederatedAudioSearchManager() {
+		this(DEFAULT_DEADLINE);
+	}
+
+	public FederatedAudioSearchManager(Duration deadline) {
+		this.deadlineNanos = deadline.toNanos();
+		this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("search"));
+	}
+
+	/**
+	 * Adds a provider, providers added first win when results are deduplicated.
+	 *
+	 * @param searchPrefix the prefix the provider expects in front of the query
+	 */
+	public FederatedAudioSearchManager addProvider(AudioSearchManager searchManager, String searchPrefix) {
+		this.providers.add(new Provider(searchManager, searchPrefix));
+		return this;
+	}
+
+	public int getProviderCount() {
+		return this.providers.size();
+	}
+
+	@NotNull
+	@Override
+	public String getSourceName() {
+		return SOURCE_NAME;
+	}
+
+	@Nullable
+	@Override
+	public AudioSearchResult loadSearch(@NotNull String query, @NotNull Set<AudioSearchResult.Type> types) {
+		if (!query.startsWith(SEARCH_PREFIX)) {
+			return null;
+		}
+		var search = query.substring(SEARCH_PREFIX.length());
+		var deadline = System.nanoTime() + this.deadlineNanos;
+		// the provider searches run on other threads, interrupting them does not abort their http requests, so they run under their own cancellation
+		var cancellation = SearchCancellation.child();
+
+		var tasks = new ArrayList<Future<AudioSearchResult>>(this.providers.size());
+		for (var provider : this.providers) {
+			tasks.add(this.executor.submit(() -> cancellation.run(() -> provider.searchManager.loadSearch(provider.searchPrefix + search, types))));
+		}
+
+		var results = new ArrayList<AudioSearchResult>(tasks.size());
+		try {
+			for (var i = 0; i < tasks.size(); i++) {
+				var result = this.await(tasks.get(i), this.providers.get(i), deadline);
+				if (result != null) {
+					results.add(result);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// aborts the requests of providers which missed the deadline, the others are done already
+			cancellation.cancel();
+			for (var task : tasks) {
+				task.cancel(true);
+			}
+		}
+		return merge(results);
+	}
+
+	private AudioSearchResult await(Future<AudioSearchResult> task, Provider provider, long deadline) throws InterruptedException {
+		try {
+			return task.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			log.debug("Search deadline reached before {} answered", provider.searchManager.getSourceName());
+		} catch (ExecutionException e) {
+			log.debug("Failed to search {}", provider.searchManager.getSourceName(), e.getCause());
+		}
+		return null;
+	}
+
+	private static AudioSearchResult merge(List<AudioSearchResult> results) {
+		var tracks = new Merger<AudioTrack>(FederatedAudioSearchManager::trackKey);
+		var albums = new Merger<AudioPlaylist>(FederatedAudioSearchManager::playlistKey);
+		var artists = new Merger<AudioPlaylist>(FederatedAudioSearchManager::playlistKey);
+		var playlists = new Merger<AudioPlaylist>(FederatedAudioSearchManager::playlistKey);
+		var texts = new Merger<AudioText>(text -> normalize(text.getText()));
+		for (var result : results) {
+			tracks.addAll(result.getTracks());
+			albums.addAll(result.getAlbums());
+			artists.addAll(result.getArtists());
+			playlists.addAll(result.getPlaylists());
+			texts.addAll(result.getTexts());
+		}
+		return new BasicAudioSearchResult(tracks.items, albums.items, artists.items, playlists.items, texts.items);
+	}
+
+	private static String trackKey(AudioTrack track) {
+		var info = track.getInfo();
+		if (info.isrc != null && !info.isrc.isEmpty()) {
+			return "isrc:" + info.isrc.toUpperCase(Locale.ROOT);
+		}
+		return normalize(info.title) + "\n" + normalize(info.author);
+	}
+
+	private static String playlistKey(AudioPlaylist playlist) {
+		var author = playlist instanceof ExtendedAudioPlaylist ? ((ExtendedAudioPlaylist) playlist).getAuthor() : null;
+		return normalize(playlist.getName()) + "\n" + normalize(author);
+	}
+
+	/**
+	 * Lowercases the text and drops everything but letters and digits, so punctuation and spacing differences between providers don't matter.
+	 */
+	static String normalize(@Nullable String text) {
+		if (text == null) {
+			return "";
+		}
+		var normalized = new StringBuilder(text.length());
+		text.codePoints()
+			.filter(Character::isLetterOrDigit)
+			.map(Character::toLowerCase)
+			.forEach(normalized::appendCodePoint);
+		return normalized.toString();
+	}
+
+	@Override
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	private static class Provider {
+
+		private final AudioSearchManager searchManager;
+		private final String searchPrefix;
+
+		private Provider(AudioSearchManager searchManager, String searchPrefix) {
+			this.searchManager = searchManager;
+			this.searchPrefix = searchPrefix;
+		}
+	}
+
+	private static class Merger<T> {
+
+		private final Function<T, String> key;
+		private final Set<String> seen = new HashSet<>();
+		private final List<T> items = new ArrayList<>();
+
+		private Merger(Function<T, String> key) {
+			this.key = key;
+		}
+
+		private void addAll(List<? extends T> items) {
+			for (var item : items) {
+				if (this.seen.add(this.key.apply(item))) {
+					this.items.add(item);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.github.topi314.lavasrc.search;
+
+import org.apache.http.client.methods.HttpUriRequest;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Tracks the http requests made by a search on the current thread, so they can be aborted once the search is superseded.
+ */
+public class SearchCancellation {
+
+	private static final ThreadLocal<SearchCancellation> CURRENT = new ThreadLocal<>();
+
+	private final Set<HttpUriRequest> requests = ConcurrentHashMap.newKeySet();
+	private final Set<SearchCancellation> children = ConcurrentHashMap.newKeySet();
+	@Nullable
+	private final SearchCancellation parent;
+	private volatile boolean cancelled;
+
+	public SearchCancellation() {
+		this(null);
+	}
+
+	private SearchCancellation(@Nullable SearchCancellation parent) {
+		this.parent = parent;
+	}
+
+	@Nullable
+	public static SearchCancellation current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Registers a request of the current search, does nothing if no search is running on this thread.
+	 * Requests registered after the search was cancelled are aborted right away.
+	 */
+	public static void register(HttpUriRequest request) {
+		var cancellation = CURRENT.get();
+		if (cancellation == null) {
+			return;
+		}
+		cancellation.requests.add(request);
+		if (cancellation.cancelled) {
+			request.abort();
+		}
+	}
+
+	public static void unregister(HttpUriRequest request) {
+		var cancellation = CURRENT.get();
+		if (cancellation != null) {
+			cancellation.requests.remove(request);
+		}
+	}
+
+	/**
+	 * Creates a cancellation which is also cancelled once the current search on this thread is cancelled.
+	 * Cancelling it does not affect the current search, it is a standalone cancellation if no search is running.
+	 */
+	public static SearchCancellation child() {
+		var parent = CURRENT.get();
+		if (parent == null) {
+			return new SearchCancellation();
+		}
+		var child = new SearchCancellation(parent);
+		parent.children.add(child);
+		if (parent.cancelled) {
+			child.cancel();
+		}
+		return child;
+	}
+
+	public <T> T run(Supplier<T> search) {
+		var previous = CURRENT.get();
+		CURRENT.set(this);
+		try {
+			return search.get();
+		} finally {
+			CURRENT.set(previous);
+		}
+	}
+
+	public void cancel() {
+		this.cancelled = true;
+		if (this.parent != null) {
+			this.parent.children.remove(this);
+		}
+		for (var request : this.requests) {
+			request.abort();
+		}
+		for (var child : this.children) {
+			child.cancel();
+		}
+	}
+
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+}
@@ -0,0 +1,142 @@
+package com.github.topi314.lavasrc.search;
+
+import com.github.topi314.lavasearch.result.AudioSearchResult;
+import com.github.topi314.lavasearch.result.BasicAudioSearchResult;
+import com.github.topi314.lavasrc.ExtendedAudioPlaylist;
+import com.github.topi314.lavasrc.cache.ExpiringCache;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Caches parsed search results per source for a short time, every source gets its own size limit so busy sources can't evict the others.
+ * Tracks are stateful, so they are cloned when they go into and come out of the cache, their clones keep all extended fields.
+ */
+public class SearchResultCache {
+
+	public static final int DEFAULT_MAX_SIZE_PER_SOURCE = 500;
+	public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+	private final int maxSizePerSource;
+	private final Duration ttl;
+	private final Map<String, ExpiringCache<String, Object>> sources = new ConcurrentHashMap<>();
+
+	public SearchResultCache() {
+		this(DEFAULT_MAX_SIZE_PER_SOURCE, DEFAULT_TTL);
+	}
+
+	public SearchResultCache(int maxSizePerSource, Duration ttl) {
+		this.maxSizePerSource = maxSizePerSource;
+		this.ttl = ttl;
+	}
+
+	/**
+	 * Trims, collapses whitespace and lowercases the query, search apis don't distinguish these.
+	 */
+	public static String normalize(String query) {
+		var normalized = new StringBuilder(query.length());
+		var space = false;
+		for (var i = 0; i < query.length(); i++) {
+			var c = query.charAt(i);
+			if (Character.isWhitespace(c)) {
+				space = normalized.length() > 0;
+				continue;
+			}
+			if (space) {
+				normalized.append(' ');
+				space = false;
+			}
+			normalized.append(c);
+		}
+		return normalized.toString().toLowerCase(Locale.ROOT);
+	}
+
+	private ExpiringCache<String, Object> source(String sourceName) {
+		return this.sources.computeIfAbsent(sourceName, unused -> new ExpiringCache<>(this.maxSizePerSource, this.ttl));
+	}
+
+	@Nullable
+	public AudioItem getItem(String sourceName, String query) {
+		var item = this.source(sourceName).get("item:" + normalize(query));
+		return item == null ? null : copy((AudioItem) item);
+	}
+
+	/**
+	 * Caches a copy of search playlists and no match references, other items are not cached.
+	 *
+	 * @return the given item
+	 */
+	public AudioItem putItem(String sourceName, String query, AudioItem item) {
+		if (item == AudioReference.NO_TRACK || item instanceof BasicAudioPlaylist) {
+			this.source(sourceName).put("item:" + normalize(query), copy(item));
+		}
+		return item;
+	}
+
+	@Nullable
+	public AudioSearchResult getResult(String sourceName, String query, Set<AudioSearchResult.Type> types) {
+		var result = this.source(sourceName).get(resultKey(query, types));
+		return result == null ? null : copy((AudioSearchResult) result);
+	}
+
+	/**
+	 * @return the given result
+	 */
+	public AudioSearchResult putResult(String sourceName, String query, Set<AudioSearchResult.Type> types, AudioSearchResult result) {
+		if (result != null) {
+			this.source(sourceName).put(resultKey(query, types), copy(result));
+		}
+		return result;
+	}
+
+	public void clear() {
+		this.sources.clear();
+	}
+
+	private static String resultKey(String query, Set<AudioSearchResult.Type> types) {
+		var sortedTypes = types.stream()
+			.map(Enum::name)
+			.sorted()
+			.collect(Collectors.joining(","));
+		return "search:" + sortedTypes + ":" + normalize(query);
+	}
+
+	private static AudioItem copy(AudioItem item) {
+		if (!(item instanceof BasicAudioPlaylist)) {
+			return item;
+		}
+		if (item instanceof ExtendedAudioPlaylist) {
+			// the source specific playlist subclasses add nothing on top, so the copy keeps all of their info
+			var playlist = (ExtendedAudioPlaylist) item;
+			return new ExtendedAudioPlaylist(playlist.getName(), copy(playlist.getTracks()), playlist.getType(), playlist.getUrl(), playlist.getArtworkURL(), playlist.getAuthor(), playlist.getTotalTracks());
+		}
+		var playlist = (BasicAudioPlaylist) item;
+		return new BasicAudioPlaylist(playlist.getName(), copy(playlist.getTracks()), null, playlist.isSearchResult());
+	}
+
+	private static AudioSearchResult copy(AudioSearchResult result) {
+		// playlists in search results only describe where to load them from, so they can be shared
+		return new BasicAudioSearchResult(
+			copy(result.getTracks()),
+			result.getAlbums(),
+			result.getArtists(),
+			result.getPlaylists(),
+			result.getTexts()
+		);
+	}
+
+	private static List<AudioTrack> copy(List<AudioTrack> tracks) {
+		var copies = new ArrayList<AudioTrack>(tracks.size());
+		for (var track : tracks) {
+			copies.add(track.makeClone());
+		}
+		return copies;
+	}
+}
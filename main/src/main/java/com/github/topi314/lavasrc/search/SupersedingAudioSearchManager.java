@@ -0,0 +1,75 @@
+package com.github.topi314.lavasrc.search;
+
+import com.github.topi314.lavasearch.AudioSearchManager;
+import com.github.topi314.lavasearch.result.AudioSearchResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Wraps an {@link AudioSearchManager} and aborts the http requests of a running search once the same client starts a newer one.
+ * Type-ahead clients only ever show the result of their latest query, so the superseded search returns no result.
+ */
+public class SupersedingAudioSearchManager implements AudioSearchManager {
+
+	private static final Logger log = LoggerFactory.getLogger(SupersedingAudioSearchManager.class);
+
+	private final AudioSearchManager delegate;
+	private final Supplier<String> clientKey;
+	private final Map<String, SearchCancellation> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * @param clientKey identifies the client of the current search, searches without a client are never superseded
+	 */
+	public SupersedingAudioSearchManager(AudioSearchManager delegate, Supplier<String> clientKey) {
+		this.delegate = delegate;
+		this.clientKey = clientKey;
+	}
+
+	public AudioSearchManager getDelegate() {
+		return this.delegate;
+	}
+
+	@NotNull
+	@Override
+	public String getSourceName() {
+		return this.delegate.getSourceName();
+	}
+
+	@Nullable
+	@Override
+	public AudioSearchResult loadSearch(@NotNull String query, @NotNull Set<AudioSearchResult.Type> types) {
+		var client = this.clientKey.get();
+		if (client == null) {
+			return this.delegate.loadSearch(query, types);
+		}
+
+		var cancellation = new SearchCancellation();
+		var previous = this.inFlight.put(client, cancellation);
+		if (previous != null) {
+			previous.cancel();
+		}
+		try {
+			return cancellation.run(() -> this.delegate.loadSearch(query, types));
+		} catch (RuntimeException e) {
+			if (cancellation.isCancelled()) {
+				log.debug("{} search for '{}' was superseded by a newer search", this.getSourceName(), query);
+				return null;
+			}
+			throw e;
+		} finally {
+			this.inFlight.remove(client, cancellation);
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		this.delegate.shutdown();
+	}
+}
@@ -7,9 +7,17 @@ import com.sedmelluq.discord.lavaplayer.tools.io.SeekableInputStream;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
 import com.sedmelluq.discord.lavaplayer.track.InternalAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
 
 public class SpotifyAudioTrack extends MirroringAudioTrack {
 
+	private static final Logger log = LoggerFactory.getLogger(SpotifyAudioTrack.class);
+
+	private volatile AudioTrackInfo resolvedTrackInfo;
 
 	public SpotifyAudioTrack(AudioTrackInfo trackInfo, SpotifySourceManager sourceManager) {
 		this(trackInfo, null, null, null, null, null, false, sourceManager);
@@ -19,6 +27,40 @@ public class SpotifyAudioTrack extends MirroringAudioTrack {
 		super(trackInfo, albumName, albumUrl, artistUrl, artistArtworkUrl, previewUrl, isPreview, sourceManager);
 	}
 
+	@Override
+	public AudioTrackInfo getInfo() {
+		var resolvedTrackInfo = this.resolvedTrackInfo;
+		return resolvedTrackInfo != null ? resolvedTrackInfo : this.trackInfo;
+	}
+
+	@Override
+	public void process(LocalAudioTrackExecutor executor) throws Exception {
+		var sourceManager = (SpotifySourceManager) this.sourceManager;
+		// album tracks loaded in lazy mode have no isrc yet, only fetch it now that the track actually gets mirrored
+		if (!this.isPreview && !this.isLocal() && this.getInfo().isrc == null && sourceManager.isLazyAlbumIsrc()) {
+			String isrc = null;
+			try {
+				isrc = sourceManager.getIsrc(this.trackInfo.identifier);
+			} catch (IOException e) {
+				// the mirror can still be found by title and author
+				log.warn("Failed to load isrc of spotify track {}", this.trackInfo.identifier, e);
+			}
+			if (isrc != null) {
+				this.resolvedTrackInfo = new AudioTrackInfo(
+					this.trackInfo.title,
+					this.trackInfo.author,
+					this.trackInfo.length,
+					this.trackInfo.identifier,
+					this.trackInfo.isStream,
+					this.trackInfo.uri,
+					this.trackInfo.artworkUrl,
+					isrc
+				);
+			}
+		}
+		super.process(executor);
+	}
+
 	@Override
 	protected InternalAudioTrack createAudioTrack(AudioTrackInfo trackInfo, SeekableInputStream stream) {
 		return new Mp3AudioTrack(trackInfo, stream);
@@ -26,7 +68,7 @@ public class SpotifyAudioTrack extends MirroringAudioTrack {
 
 	@Override
 	protected AudioTrack makeShallowClone() {
-		return new SpotifyAudioTrack(this.trackInfo, (SpotifySourceManager) this.sourceManager);
+		return new SpotifyAudioTrack(this.getInfo(), this.albumName, this.albumUrl, this.artistUrl, this.artistArtworkUrl, this.previewUrl, this.isPreview, this.sourceManager);
 	}
 
 	public boolean isLocal() {
@@ -2,16 +2,17 @@ package com.github.topi314.lavasrc.spotify;
 
 import com.github.topi314.lavalyrics.AudioLyricsManager;
 import com.github.topi314.lavalyrics.lyrics.AudioLyrics;
-import com.github.topi314.lavalyrics.lyrics.BasicAudioLyrics;
 import com.github.topi314.lavasearch.AudioSearchManager;
 import com.github.topi314.lavasearch.result.AudioSearchResult;
 import com.github.topi314.lavasearch.result.BasicAudioSearchResult;
 import com.github.topi314.lavasrc.ExtendedAudioPlaylist;
 import com.github.topi314.lavasrc.LavaSrcTools;
+import com.github.topi314.lavasrc.lyrics.TimedLyricsBuilder;
 import com.github.topi314.lavasrc.mirror.DefaultMirroringAudioTrackResolver;
 import com.github.topi314.lavasrc.mirror.MirroringAudioSourceManager;
 import com.github.topi314.lavasrc.mirror.MirroringAudioTrackResolver;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.DaemonThreadFactory;
 import com.sedmelluq.discord.lavaplayer.tools.JsonBrowser;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpClientTools;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpConfigurable;
@@ -26,16 +27,19 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.DataInput;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Pattern;
@@ -53,10 +57,22 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 	public static final int ALBUM_MAX_PAGE_ITEMS = 50;
 	public static final String API_BASE = "https://api.spotify.com/v1/";
 	public static final String CLIENT_API_BASE = "https://spclient.wg.spotify.com/";
+	// only request the fields parseTrack & SpotifyAudioPlaylist actually read, full playlist pages carry available_markets, full album objects etc.
+	public static final String TRACK_FIELDS = "id,name,type,is_local,duration_ms,preview_url,external_urls(spotify),external_ids(isrc),artists(id,name,external_urls(spotify)),album(name,external_urls(spotify),images(url))";
+	public static final String PLAYLIST_FIELDS = "name,external_urls(spotify),images(url),owner(display_name),tracks(total)";
+	public static final String PLAYLIST_TRACKS_FIELDS = "next,items(track(" + TRACK_FIELDS + "))";
 	public static final Set<AudioSearchResult.Type> SEARCH_TYPES = Set.of(AudioSearchResult.Type.ALBUM, AudioSearchResult.Type.ARTIST, AudioSearchResult.Type.PLAYLIST, AudioSearchResult.Type.TRACK);
+	// only append to this list, encoded tracks refer to the prefixes by index
+	private static final List<String> URL_PREFIXES = List.of(
+		"https://open.spotify.com/album/",
+		"https://open.spotify.com/artist/",
+		"https://i.scdn.co/image/",
+		"https://p.scdn.co/mp3-preview/"
+	);
 	private static final Logger log = LoggerFactory.getLogger(SpotifySourceManager.class);
 
 	private final HttpInterfaceManager httpInterfaceManager = HttpClientTools.createDefaultThreadLocalManager();
+	private final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("spotify"));
 	private SpotifyTokenTracker tokenTracker;
 	private String spDc;
 	private final String countryCode;
@@ -64,6 +80,7 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 	private int albumPageLimit = 6;
 	private boolean localFiles;
 	private boolean resolveArtistsInSearch = true;
+	private boolean lazyAlbumIsrc;
 
 	private String spToken;
 	private Instant spTokenExpire;
@@ -112,6 +129,14 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 		this.resolveArtistsInSearch = resolveArtistsInSearch;
 	}
 
+	public void setLazyAlbumIsrc(boolean lazyAlbumIsrc) {
+		this.lazyAlbumIsrc = lazyAlbumIsrc;
+	}
+
+	public boolean isLazyAlbumIsrc() {
+		return this.lazyAlbumIsrc;
+	}
+
 	public void setClientIDSecret(String clientId, String clientSecret) {
 		this.tokenTracker = new SpotifyTokenTracker(this, clientId, clientSecret);
 	}
@@ -182,21 +207,22 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 			return null;
 		}
 
-		var lyrics = new ArrayList<AudioLyrics.Line>();
-		for (var line : json.get("lyrics").get("lines").values()) {
-			lyrics.add(new BasicAudioLyrics.BasicLine(
-				Duration.ofMillis(line.get("startTimeMs").asLong(0)),
-				null,
-				line.get("words").text()
-			));
+		var lines = json.get("lyrics").get("lines").values();
+		var lyrics = new TimedLyricsBuilder(lines.size());
+		for (var line : lines) {
+			lyrics.add(line.get("startTimeMs").asLong(0), TimedLyricsBuilder.UNTIL_NEXT, line.get("words").text());
 		}
 
-		return new BasicAudioLyrics("spotify", json.get("lyrics").get("providerDisplayName").textOrDefault("MusixMatch"), null, lyrics);
+		return lyrics.build("spotify", json.get("lyrics").get("providerDisplayName").textOrDefault("MusixMatch"), null, TimedLyricsBuilder.UNKNOWN_END);
 	}
 
 	@Override
-	public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException {
-		var extendedAudioTrackInfo = super.decodeTrack(input);
+	protected List<String> getUrlPrefixes() {
+		return URL_PREFIXES;
+	}
+
+	@Override
+	protected AudioTrack createTrack(AudioTrackInfo trackInfo, ExtendedAudioTrackInfo extendedAudioTrackInfo) {
 		return new SpotifyAudioTrack(trackInfo,
 			extendedAudioTrackInfo.albumName,
 			extendedAudioTrackInfo.albumUrl,
@@ -231,7 +257,8 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 	public AudioItem loadItem(String identifier, boolean preview) {
 		try {
 			if (identifier.startsWith(SEARCH_PREFIX)) {
-				return this.getSearch(identifier.substring(SEARCH_PREFIX.length()).trim(), preview);
+				var query = identifier.substring(SEARCH_PREFIX.length()).trim();
+				return this.cachedSearch((preview ? PREVIEW_PREFIX : "") + query, () -> this.getSearch(query, preview));
 			}
 
 			if (identifier.startsWith(RECOMMENDATIONS_PREFIX)) {
@@ -301,6 +328,36 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 		return LavaSrcTools.fetchResponseAsJson(this.httpInterfaceManager.getInterface(), request);
 	}
 
+	private CompletableFuture<JsonBrowser> getJsonAsync(String uri) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return this.getJson(uri);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, this.executor);
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw e;
+		}
+	}
+
+	@Nullable
+	public String getIsrc(String id) throws IOException {
+		var json = this.getJson(API_BASE + "tracks/" + id);
+		if (json == null) {
+			return null;
+		}
+		return json.get("external_ids").get("isrc").text();
+	}
+
 	private AudioSearchResult getAutocomplete(String query, Set<AudioSearchResult.Type> types) throws IOException {
 		if (types.isEmpty()) {
 			types = SEARCH_TYPES;
@@ -393,35 +450,21 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 			return AudioReference.NO_TRACK;
 		}
 
-		var artistJson = this.getJson(API_BASE + "artists/" + json.get("artists").index(0).get("id").text());
-		if (artistJson == null) {
-			artistJson = JsonBrowser.newMap();
-		}
+		var artistJson = this.getJsonAsync(API_BASE + "artists/" + json.get("artists").index(0).get("id").text());
 
+		// the first page is already part of the album response, the remaining pages and their tracks/?ids= lookups run in parallel
+		var pages = new ArrayList<CompletableFuture<List<AudioTrack>>>();
+		pages.add(this.getAlbumPage(CompletableFuture.completedFuture(json.get("tracks")), json, artistJson, preview));
+		var total = json.get("tracks").get("total").asLong(0);
+		for (var offset = ALBUM_MAX_PAGE_ITEMS; offset < total && pages.size() < this.albumPageLimit; offset += ALBUM_MAX_PAGE_ITEMS) {
+			var page = this.getJsonAsync(API_BASE + "albums/" + id + "/tracks?limit=" + ALBUM_MAX_PAGE_ITEMS + "&offset=" + offset);
+			pages.add(this.getAlbumPage(page, json, artistJson, preview));
+		}
 
 		var tracks = new ArrayList<AudioTrack>();
-		JsonBrowser page;
-		var offset = 0;
-		var pages = 0;
-		do {
-			page = this.getJson(API_BASE + "albums/" + id + "/tracks?limit=" + ALBUM_MAX_PAGE_ITEMS + "&offset=" + offset);
-			offset += ALBUM_MAX_PAGE_ITEMS;
-
-			var tracksPage = this.getJson(API_BASE + "tracks/?ids=" + page.get("items").values().stream().map(track -> track.get("id").text()).collect(Collectors.joining(",")));
-
-			for (var track : tracksPage.get("tracks").values()) {
-				var albumJson = JsonBrowser.newMap();
-				albumJson.put("external_urls", json.get("external_urls"));
-				albumJson.put("name", json.get("name"));
-				albumJson.put("images", json.get("images"));
-				track.put("album", albumJson);
-
-				track.get("artists").index(0).put("images", artistJson.get("images"));
-			}
-
-			tracks.addAll(this.parseTracks(tracksPage, preview));
+		for (var page : pages) {
+			tracks.addAll(await(page));
 		}
-		while (page.get("next").text() != null && ++pages < this.albumPageLimit);
 
 		if (tracks.isEmpty()) {
 			return AudioReference.NO_TRACK;
@@ -431,8 +474,31 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 
 	}
 
+	private CompletableFuture<List<AudioTrack>> getAlbumPage(CompletableFuture<JsonBrowser> page, JsonBrowser albumJson, CompletableFuture<JsonBrowser> artistJson, boolean preview) {
+		var items = page.<List<JsonBrowser>>thenCompose(json -> {
+			if (json == null) {
+				return CompletableFuture.completedFuture(List.of());
+			}
+			// album track objects have no external_ids, in lazy mode the isrc gets fetched once the track is mirrored
+			if (this.lazyAlbumIsrc) {
+				return CompletableFuture.completedFuture(json.get("items").values());
+			}
+			var ids = json.get("items").values().stream().map(track -> track.get("id").text()).collect(Collectors.joining(","));
+			return this.getJsonAsync(API_BASE + "tracks/?ids=" + ids).thenApply(tracksJson -> tracksJson == null ? List.<JsonBrowser>of() : tracksJson.get("tracks").values());
+		});
+
+		return items.thenCombine(artistJson, (tracksJson, artist) -> {
+			var artistArtworkUrl = artist == null ? null : artist.get("images").index(0).get("url").text();
+			var tracks = new ArrayList<AudioTrack>(tracksJson.size());
+			for (var track : tracksJson) {
+				tracks.add(this.parseTrack(track, albumJson, artistArtworkUrl, preview));
+			}
+			return tracks;
+		});
+	}
+
 	public AudioItem getPlaylist(String id, boolean preview) throws IOException {
-		var json = this.getJson(API_BASE + "playlists/" + id);
+		var json = this.getJson(API_BASE + "playlists/" + id + "?fields=" + URLEncoder.encode(PLAYLIST_FIELDS, StandardCharsets.UTF_8));
 		if (json == null) {
 			return AudioReference.NO_TRACK;
 		}
@@ -442,7 +508,7 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 		var offset = 0;
 		var pages = 0;
 		do {
-			page = this.getJson(API_BASE + "playlists/" + id + "/tracks?limit=" + PLAYLIST_MAX_PAGE_ITEMS + "&offset=" + offset);
+			page = this.getJson(API_BASE + "playlists/" + id + "/tracks?limit=" + PLAYLIST_MAX_PAGE_ITEMS + "&offset=" + offset + "&fields=" + URLEncoder.encode(PLAYLIST_TRACKS_FIELDS, StandardCharsets.UTF_8));
 			offset += PLAYLIST_MAX_PAGE_ITEMS;
 
 			for (var value : page.get("items").values()) {
@@ -516,6 +582,10 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 	}
 
 	private AudioTrack parseTrack(JsonBrowser json, boolean preview) {
+		return this.parseTrack(json, json.get("album"), json.get("artists").index(0).get("images").index(0).get("url").text(), preview);
+	}
+
+	private AudioTrack parseTrack(JsonBrowser json, JsonBrowser albumJson, String artistArtworkUrl, boolean preview) {
 		return new SpotifyAudioTrack(
 			new AudioTrackInfo(
 				json.get("name").text(),
@@ -524,13 +594,13 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 				json.get("id").text() != null ? json.get("id").text() : "local",
 				false,
 				json.get("external_urls").get("spotify").text(),
-				json.get("album").get("images").index(0).get("url").text(),
+				albumJson.get("images").index(0).get("url").text(),
 				json.get("external_ids").get("isrc").text()
 			),
-			json.get("album").get("name").text(),
-			json.get("album").get("external_urls").get("spotify").text(),
+			albumJson.get("name").text(),
+			albumJson.get("external_urls").get("spotify").text(),
 			json.get("artists").index(0).get("external_urls").get("spotify").text(),
-			json.get("artists").index(0).get("images").index(0).get("url").text(),
+			artistArtworkUrl,
 			json.get("preview_url").text(),
 			preview,
 			this
@@ -539,6 +609,7 @@ public class SpotifySourceManager extends MirroringAudioSourceManager implements
 
 	@Override
 	public void shutdown() {
+		this.executor.shutdownNow();
 		try {
 			this.httpInterfaceManager.close();
 		} catch (IOException e) {
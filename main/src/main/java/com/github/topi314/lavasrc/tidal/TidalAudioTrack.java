@@ -20,7 +20,7 @@ public class TidalAudioTrack extends MirroringAudioTrack {
 
 	@Override
 	protected AudioTrack makeShallowClone() {
-		return new TidalAudioTrack(this.trackInfo, (TidalSourceManager) this.sourceManager);
+		return new TidalAudioTrack(this.trackInfo, this.albumName, this.albumUrl, this.artistUrl, this.artistArtworkUrl, this.previewUrl, this.isPreview, this.sourceManager);
 	}
 
 	@Override
@@ -19,7 +19,6 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.DataInput;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -39,6 +38,12 @@ public class TidalSourceManager extends MirroringAudioSourceManager implements H
 	public static final String API_BASE = "https://api.tidal.com/v1/";
 	public static final String MAIN_BASE = "https://listen.tidal.com";
 	public static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/108.0.0.0 Safari/537.36";
+	// only append to this list, encoded tracks refer to the prefixes by index
+	private static final List<String> URL_PREFIXES = List.of(
+		"https://tidal.com/browse/album/",
+		"https://tidal.com/browse/artist/",
+		"https://resources.tidal.com/images/"
+	);
 	private static final Logger log = LoggerFactory.getLogger(TidalSourceManager.class);
 	private final HttpInterfaceManager httpInterfaceManager = HttpClientTools.createDefaultThreadLocalManager();
 	private String countryCode = "US";
@@ -137,8 +142,12 @@ public class TidalSourceManager extends MirroringAudioSourceManager implements H
 	}
 
 	@Override
-	public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException {
-		var extendedAudioTrackInfo = super.decodeTrack(input);
+	protected List<String> getUrlPrefixes() {
+		return URL_PREFIXES;
+	}
+
+	@Override
+	protected AudioTrack createTrack(AudioTrackInfo trackInfo, ExtendedAudioTrackInfo extendedAudioTrackInfo) {
 		return new TidalAudioTrack(trackInfo,
 			extendedAudioTrackInfo.albumName,
 			extendedAudioTrackInfo.albumUrl,
@@ -153,7 +162,10 @@ public class TidalSourceManager extends MirroringAudioSourceManager implements H
 	@Override
 	public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference) {
 		try {
-			if (reference.identifier.startsWith(SEARCH_PREFIX)) return this.getSearch(reference.identifier.substring(SEARCH_PREFIX.length()).trim());
+			if (reference.identifier.startsWith(SEARCH_PREFIX)) {
+				var query = reference.identifier.substring(SEARCH_PREFIX.length()).trim();
+				return this.cachedSearch(query, () -> this.getSearch(query));
+			}
 
 			var matcher = URL_PATTERN.matcher(reference.identifier);
 
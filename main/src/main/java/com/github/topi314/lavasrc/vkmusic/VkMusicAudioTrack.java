@@ -28,30 +28,23 @@ public class VkMusicAudioTrack extends ExtendedAudioTrack {
 	@Override
 	public void process(LocalAudioTrackExecutor executor) throws Exception {
 		try (var httpInterface = this.sourceManager.getHttpInterface()) {
-			try (var stream = new PersistentHttpStream(httpInterface, getMp3TrackUri(), this.trackInfo.length)) {
+			try (var stream = new PersistentHttpStream(httpInterface, this.getMp3TrackUri(), this.trackInfo.length)) {
 				processDelegate(new Mp3AudioTrack(this.trackInfo, stream), executor);
 			}
+		} catch (Exception e) {
+			// the cached url might have expired early, the next attempt should fetch a fresh one
+			this.sourceManager.invalidateTrackUrl(this.trackInfo.identifier);
+			throw e;
 		}
 	}
 
 	public URI getMp3TrackUri() throws URISyntaxException, IOException {
-		var id = this.trackInfo.identifier;
-		var json = this.sourceManager.getJson("audio.getById", "&audios=" + id)
-			.get("response");
-		if (
-			json.isNull()
-				|| json.values().isEmpty()
-				|| json.values().get(0).get("url").isNull()
-		) {
-			throw new IllegalStateException("No download url found for track " + id);
-		}
-
-		return new URI(json.values().get(0).get("url").text());
+		return this.sourceManager.getTrackUrl(this.trackInfo.identifier);
 	}
 
 	@Override
 	protected AudioTrack makeShallowClone() {
-		return new VkMusicAudioTrack(this.trackInfo, this.sourceManager);
+		return new VkMusicAudioTrack(this.trackInfo, this.albumName, this.albumUrl, this.artistUrl, this.artistArtworkUrl, this.previewUrl, this.sourceManager);
 	}
 
 	@Override
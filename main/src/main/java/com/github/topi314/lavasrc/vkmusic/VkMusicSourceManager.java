@@ -9,6 +9,8 @@ import com.github.topi314.lavasearch.result.BasicAudioSearchResult;
 import com.github.topi314.lavasrc.ExtendedAudioPlaylist;
 import com.github.topi314.lavasrc.ExtendedAudioSourceManager;
 import com.github.topi314.lavasrc.LavaSrcTools;
+import com.github.topi314.lavasrc.cache.ExpiringCache;
+import com.github.topi314.lavasrc.lyrics.TimedLyricsBuilder;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.tools.JsonBrowser;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpClientTools;
@@ -24,11 +26,13 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.DataInput;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -40,16 +44,27 @@ public class VkMusicSourceManager extends ExtendedAudioSourceManager implements
 	private static final Pattern VK_PLAYLIST_TYPE_REGEX = Pattern.compile("(https?://)?(?:www\\.)?vk\\.(?:com|ru)/music/(playlist|album)/(?<owner>-?[A-Za-z\\d]+)_(?<id>-?[A-Za-z\\d]+)(?<accessKey>_([^/?#]*))?(?:[/?#].*)?");
 	private static final Pattern VK_TRACK_REGEX = Pattern.compile("(https?://)?(?:www\\.)?vk\\.(?:com|ru)/audio(?<id>-?\\d+)_(?<artistId>-?\\d+)(?<accessKey>_([^/?#]*))?(?:[/?#].*)?");
 	private static final Pattern VK_ARTIST_REGEX = Pattern.compile("(https?://)?(?:www\\.)?vk\\.(?:com|ru)/artist/(?<artistId>[^/?#]+)");
+	private static final Pattern VK_TRACK_ID_REGEX = Pattern.compile("-?\\d+_\\d+(_[0-9a-f]+)?");
 
 	public static final String SEARCH_PREFIX = "vksearch:";
 	public static final String RECOMMENDATIONS_PREFIX = "vkrec:";
 	public static final String PUBLIC_API_BASE = "https://api.vk.com/method/";
 	public static final String API_VERSION = "5.199";
+	public static final int GET_BY_ID_MAX_IDS = 100;
+	public static final int PRE_RESOLVE_MAX_IDS = GET_BY_ID_MAX_IDS;
+	// vk track urls are short-lived, urls without an expires parameter are only kept for this long
+	public static final Duration DEFAULT_URL_TTL = Duration.ofMinutes(30);
 	public static final Set<AudioSearchResult.Type> SEARCH_TYPES = Set.of(AudioSearchResult.Type.TRACK, AudioSearchResult.Type.ALBUM, AudioSearchResult.Type.PLAYLIST, AudioSearchResult.Type.ARTIST);
 
+	// only append to this list, encoded tracks refer to the prefixes by index
+	private static final List<String> URL_PREFIXES = List.of(
+		"https://vk.com/music/album/",
+		"https://vk.com/artist/"
+	);
 	private static final Logger log = LoggerFactory.getLogger(VkMusicSourceManager.class);
 
 	private final HttpInterfaceManager httpInterfaceManager;
+	private final ExpiringCache<String, String> trackUrls = new ExpiringCache<>(5000, DEFAULT_URL_TTL);
 
 	private String userToken;
 	private int artistLoadLimit;
@@ -202,45 +217,23 @@ public class VkMusicSourceManager extends ExtendedAudioSourceManager implements
 	}
 
 	private BasicAudioLyrics parseTimestampsLyrics(@NotNull List<JsonBrowser> lines) {
-		var strokes = new ArrayList<AudioLyrics.Line>();
-		var text = lines.stream().map(line -> {
-			strokes.add(
-				new BasicAudioLyrics.BasicLine(
-					Duration.ofMillis(line.get("begin").as(Long.class)),
-					Duration.ofMillis(line.get("end").as(Long.class) - line.get("begin").as(Long.class)),
-					line.get("line").text()
-				)
-			);
-			return line.get("line").text();
-		}).collect(Collectors.joining(" "));
-
-		return new BasicAudioLyrics(
-			this.getSourceName(),
-			"LyricFind",
-			text,
-			strokes
-		);
+		var lyrics = new TimedLyricsBuilder(lines.size());
+		for (var line : lines) {
+			var begin = line.get("begin").asLong(0);
+			var end = line.get("end").asLong(TimedLyricsBuilder.UNTIL_NEXT);
+			lyrics.add(begin, end == TimedLyricsBuilder.UNTIL_NEXT ? end : Math.max(end - begin, 0), line.get("line").text());
+		}
+		return lyrics.build(this.getSourceName(), "LyricFind", lyrics.joinLines(" "), TimedLyricsBuilder.UNKNOWN_END);
 	}
 
 	private BasicAudioLyrics parseTextLyrics(@NotNull List<JsonBrowser> lines) {
-		var strokes = new ArrayList<AudioLyrics.Line>();
-		var text = lines.stream()
-			.filter(line -> !line.text().isEmpty())
-			.map(line -> {
-				strokes.add(new BasicAudioLyrics.BasicLine(
-					Duration.ZERO,
-					Duration.ZERO,
-					line.text()
-				));
-				return line.text();
-			}).collect(Collectors.joining(" "));
-
-		return new BasicAudioLyrics(
-			this.getSourceName(),
-			"LyricFind",
-			text,
-			strokes
-		);
+		var lyrics = new TimedLyricsBuilder(lines.size());
+		for (var line : lines) {
+			if (!line.text().isEmpty()) {
+				lyrics.add(0, 0, line.text());
+			}
+		}
+		return lyrics.build(this.getSourceName(), "LyricFind", lyrics.joinLines(" "), TimedLyricsBuilder.UNKNOWN_END);
 	}
 
 
@@ -248,7 +241,8 @@ public class VkMusicSourceManager extends ExtendedAudioSourceManager implements
 	public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference) {
 		try {
 			if (reference.identifier.startsWith(SEARCH_PREFIX)) {
-				return this.getSearch(reference.identifier.substring(SEARCH_PREFIX.length()));
+				var query = reference.identifier.substring(SEARCH_PREFIX.length());
+				return this.cachedSearch(query, () -> this.getSearch(query));
 			}
 			if (reference.identifier.startsWith(RECOMMENDATIONS_PREFIX)) {
 				return this.getRecommendations(reference.identifier.substring(RECOMMENDATIONS_PREFIX.length()));
@@ -328,30 +322,32 @@ public class VkMusicSourceManager extends ExtendedAudioSourceManager implements
 	}
 
 	private AudioItem getPlaylist(String owner_id, String playlist_id, String accessKey) throws IOException {
-		var query = "&owner_id=" + owner_id;
+		var args = "\"owner_id\":" + vkScriptString(owner_id);
 		if (accessKey != null) {
-			query += "&access_key=" + accessKey;
+			args += ",\"access_key\":" + vkScriptString(accessKey);
 		}
-		var json = this.getJson("audio.get", query + "&album_id=" + playlist_id + "&count=" + playlistLoadLimit * 50);
+		// both calls are folded into one execute request, which only counts once against the rate limit
+		var response = this.execute("return {"
+			+ "\"tracks\":API.audio.get({" + args + ",\"album_id\":" + vkScriptString(playlist_id) + ",\"count\":" + playlistLoadLimit * 50 + "}),"
+			+ "\"playlist\":API.audio.getPlaylistById({" + args + ",\"playlist_id\":" + vkScriptString(playlist_id) + "})"
+			+ "};");
 
 		if (
-			json.isNull()
-				|| json.get("response").isNull()
-				|| json.get("response").get("items").isNull()
-				|| json.get("response").get("items").values().isEmpty()
+			response.isNull()
+				|| response.get("tracks").get("items").isNull()
+				|| response.get("tracks").get("items").values().isEmpty()
 		) {
 			return AudioReference.NO_TRACK;
 		}
 
-		var tracks = this.parseTracks(json.get("response").get("items"));
+		var tracks = this.parseTracks(response.get("tracks").get("items"));
 		if (tracks.isEmpty()) {
 			return AudioReference.NO_TRACK;
 		}
 
 		String coverUri = null;
 		String title = null;
-		var playlistJson = this.getJson("audio.getPlaylistById", query + "&playlist_id=" + playlist_id)
-			.get("response");
+		var playlistJson = response.get("playlist");
 
 		if (!playlistJson.isNull()) {
 			coverUri = this.parsePlaylistThumbnail(playlistJson);
@@ -404,20 +400,21 @@ public class VkMusicSourceManager extends ExtendedAudioSourceManager implements
 	}
 
 	private AudioItem getArtist(String id) throws IOException {
-		var json = this.getJson("audio.getAudiosByArtist", "&artist_id=" + id + "&count" + artistLoadLimit * 20);
-		if (json.isNull() || json.get("response").values().isEmpty()) {
+		var response = this.execute("return {"
+			+ "\"tracks\":API.audio.getAudiosByArtist({\"artist_id\":" + vkScriptString(id) + ",\"count\":" + artistLoadLimit * 20 + "}),"
+			+ "\"artist\":API.audio.getArtistById({\"artist_id\":" + vkScriptString(id) + "})"
+			+ "};");
+		if (response.isNull() || response.get("tracks").get("items").values().isEmpty()) {
 			return AudioReference.NO_TRACK;
 		}
 
-		var tracks = this.parseTracks(json.get("response").get("items"));
+		var tracks = this.parseTracks(response.get("tracks").get("items"));
 		if (tracks.isEmpty()) {
 			return AudioReference.NO_TRACK;
 		}
 
-		var artistJson = this.getJson("audio.getArtistById", "&artist_id=" + id)
-			.get("response");
-
-		if (artistJson.isNull()) {
+		var artistJson = response.get("artist");
+		if (artistJson.isNull() || artistJson.get("name").isNull()) {
 			return AudioReference.NO_TRACK;
 		}
 
@@ -433,6 +430,107 @@ public class VkMusicSourceManager extends ExtendedAudioSourceManager implements
 		);
 	}
 
+	/**
+	 * @return the url of the track, either from the tracks loaded before or from a fresh audio.getById call
+	 */
+	public URI getTrackUrl(String id) throws IOException, URISyntaxException {
+		var url = this.trackUrls.get(id);
+		if (url == null) {
+			this.resolveTrackUrls(List.of(id));
+			url = this.trackUrls.get(id);
+		}
+		if (url == null) {
+			throw new IllegalStateException("No download url found for track " + id);
+		}
+		return new URI(url);
+	}
+
+	public void invalidateTrackUrl(String id) {
+		this.trackUrls.invalidate(id);
+	}
+
+	/**
+	 * Resolves the urls of the first {@link #PRE_RESOLVE_MAX_IDS} given tracks, so they can start without any extra round trips.
+	 *
+	 * @param ids track ids like {@code ownerId_audioId} with an optional {@code _accessKey}
+	 * @throws IllegalArgumentException if any of the ids is malformed
+	 */
+	public void preResolve(Collection<String> ids) throws IOException {
+		var valid = new ArrayList<String>(Math.min(ids.size(), PRE_RESOLVE_MAX_IDS));
+		for (var id : ids) {
+			if (id == null || !VK_TRACK_ID_REGEX.matcher(id).matches()) {
+				throw new IllegalArgumentException("Invalid vk music track id: " + id);
+			}
+			if (valid.size() < PRE_RESOLVE_MAX_IDS) {
+				valid.add(id);
+			}
+		}
+		this.resolveTrackUrls(valid);
+	}
+
+	/**
+	 * Resolves the urls of all given tracks which are not cached yet with as few audio.getById calls as possible.
+	 */
+	public void resolveTrackUrls(Collection<String> ids) throws IOException {
+		var missing = new ArrayList<String>(ids.size());
+		for (var id : ids) {
+			if (this.trackUrls.get(id) == null) {
+				missing.add(id);
+			}
+		}
+		for (var from = 0; from < missing.size(); from += GET_BY_ID_MAX_IDS) {
+			var chunk = String.join(",", missing.subList(from, Math.min(from + GET_BY_ID_MAX_IDS, missing.size())));
+			var json = this.getJson("audio.getById", "&audios=" + URLEncoder.encode(chunk, StandardCharsets.UTF_8));
+			if (json == null || json.get("response").isNull()) {
+				continue;
+			}
+			for (var track : json.get("response").values()) {
+				this.cacheTrackUrl(track);
+			}
+		}
+	}
+
+	private void cacheTrackUrl(JsonBrowser json) {
+		var url = json.get("url").text();
+		if (url == null || url.isEmpty()) {
+			return;
+		}
+		var id = json.get("owner_id").text() + "_" + json.get("id").text();
+
+		var ttl = DEFAULT_URL_TTL;
+		var expiresIndex = url.indexOf("expires=");
+		if (expiresIndex != -1) {
+			var end = url.indexOf('&', expiresIndex);
+			try {
+				var expiresAt = Long.parseLong(url.substring(expiresIndex + "expires=".length(), end == -1 ? url.length() : end));
+				ttl = Duration.ofSeconds(expiresAt - Instant.now().getEpochSecond() - 60);
+			} catch (NumberFormatException ignored) {
+			}
+		}
+		this.trackUrls.put(id, url, ttl);
+	}
+
+	/**
+	 * Runs multiple api methods in one request through the execute method.
+	 * Failed methods return {@code false} in the response, which reads as null through {@link JsonBrowser#get(String)}.
+	 *
+	 * @return the response object returned by the VKScript code
+	 */
+	public JsonBrowser execute(String code) throws IOException {
+		var json = this.getJson("execute", "&code=" + URLEncoder.encode(code, StandardCharsets.UTF_8));
+		if (json == null || json.isNull()) {
+			return JsonBrowser.NULL_BROWSER;
+		}
+		if (!json.get("execute_errors").isNull()) {
+			log.debug("VK execute returned errors: {}", json.get("execute_errors").text());
+		}
+		return json.get("response");
+	}
+
+	private static String vkScriptString(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
 	public JsonBrowser getJson(String method, String headers) throws IOException {
 		var uri = PUBLIC_API_BASE + method + "?v=" + API_VERSION + headers + "&access_token=" + this.userToken;
 		var request = new HttpGet(uri);
@@ -478,6 +576,7 @@ public class VkMusicSourceManager extends ExtendedAudioSourceManager implements
 			}
 
 			var audioId = json.get("owner_id").text() + "_" + json.get("id").text();
+			this.cacheTrackUrl(json);
 			return new VkMusicAudioTrack(
 				new AudioTrackInfo(
 					json.get("title").text(),
@@ -502,8 +601,12 @@ public class VkMusicSourceManager extends ExtendedAudioSourceManager implements
 	}
 
 	@Override
-	public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException {
-		var extendedAudioTrackInfo = super.decodeTrack(input);
+	protected List<String> getUrlPrefixes() {
+		return URL_PREFIXES;
+	}
+
+	@Override
+	protected AudioTrack createTrack(AudioTrackInfo trackInfo, ExtendedAudioTrackInfo extendedAudioTrackInfo) {
 		return new VkMusicAudioTrack(
 			trackInfo,
 			extendedAudioTrackInfo.albumName,
@@ -9,7 +9,10 @@ import com.github.topi314.lavasearch.result.BasicAudioSearchResult;
 import com.github.topi314.lavasrc.ExtendedAudioPlaylist;
 import com.github.topi314.lavasrc.ExtendedAudioSourceManager;
 import com.github.topi314.lavasrc.LavaSrcTools;
+import com.github.topi314.lavasrc.cache.ExpiringCache;
+import com.github.topi314.lavasrc.lyrics.TimedLyricsBuilder;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.DaemonThreadFactory;
 import com.sedmelluq.discord.lavaplayer.tools.JsonBrowser;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpClientTools;
 import com.sedmelluq.discord.lavaplayer.tools.io.HttpConfigurable;
@@ -24,15 +27,28 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.DataInput;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Pattern;
@@ -41,6 +57,12 @@ import java.util.stream.Collectors;
 public class YandexMusicSourceManager extends ExtendedAudioSourceManager implements HttpConfigurable, AudioLyricsManager, AudioSearchManager {
 	public static final Pattern URL_PATTERN = Pattern.compile("(https?://)?music\\.yandex\\.(?<domain>ru|com|kz|by)/(?<type1>artist|album|track)/(?<identifier>[0-9]+)(/(?<type2>track)/(?<identifier2>[0-9]+))?/?");
 	public static final Pattern URL_PLAYLIST_PATTERN = Pattern.compile("(https?://)?music\\.yandex\\.(?<domain>ru|com|kz|by)/users/(?<identifier>[0-9A-Za-z@.-]+)/playlists/(?<identifier2>[0-9]+)/?");
+	// pre-resolved ids come from clients and go into api paths, so only numeric ids with an optional album id are accepted
+	private static final Pattern TRACK_ID_PATTERN = Pattern.compile("\\d+(:\\d+)?");
+	/**
+	 * @deprecated lyrics are parsed by {@link TimedLyricsBuilder#parseLrc(String[])} now, this pattern is unused
+	 */
+	@Deprecated
 	public static final Pattern EXTRACT_LYRICS_STROKE = Pattern.compile("\\[(?<min>\\d{2}):(?<sec>\\d{2})\\.(?<mil>\\d{2})] ?(?<text>.+)?");
 	public static final String SEARCH_PREFIX = "ymsearch:";
 	public static final String RECOMMENDATIONS_PREFIX = "ymrec:";
@@ -48,11 +70,33 @@ public class YandexMusicSourceManager extends ExtendedAudioSourceManager impleme
 	public static final int ARTIST_MAX_PAGE_ITEMS = 10;
 	public static final int PLAYLIST_MAX_PAGE_ITEMS = 100;
 	public static final int ALBUM_MAX_PAGE_ITEMS = 50;
+	public static final int TRACKS_MAX_IDS = 100;
+	// chunks are loaded ahead of the one being collected, but only a few at once to spare memory and the api rate limit
+	public static final int TRACKS_MAX_CHUNKS_IN_FLIGHT = 3;
+	// signed download urls stay valid for a while, they are dropped well before that
+	public static final Duration DOWNLOAD_URL_TTL = Duration.ofMinutes(10);
+	// only the next queued tracks are worth resolving ahead, everything above is ignored
+	public static final int PRE_RESOLVE_MAX_IDS = 20;
+	public static final int PRE_RESOLVE_THREADS = 4;
+	public static final int PRE_RESOLVE_QUEUE_SIZE = 100;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
 	public static final Set<AudioSearchResult.Type> SEARCH_TYPES = Set.of(AudioSearchResult.Type.TRACK, AudioSearchResult.Type.ALBUM, AudioSearchResult.Type.PLAYLIST, AudioSearchResult.Type.ARTIST);
 
+	// only append to this list, encoded tracks refer to the prefixes by index
+	private static final List<String> URL_PREFIXES = List.of(
+		"https://music.yandex.ru/",
+		"https://music.yandex.com/",
+		"https://music.yandex.kz/",
+		"https://music.yandex.by/",
+		"https://avatars.yandex.net/"
+	);
 	private static final Logger log = LoggerFactory.getLogger(YandexMusicSourceManager.class);
 
 	private final HttpInterfaceManager httpInterfaceManager;
+	private final ExpiringCache<String, String> downloadUrls = new ExpiringCache<>(1000, DOWNLOAD_URL_TTL);
+	private final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("yandexmusic"));
+	private final ThreadPoolExecutor preResolveExecutor = new ThreadPoolExecutor(PRE_RESOLVE_THREADS, PRE_RESOLVE_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(PRE_RESOLVE_QUEUE_SIZE), new DaemonThreadFactory("yandexmusic-preresolve"));
+	private final Set<String> pendingPreResolves = ConcurrentHashMap.newKeySet();
 
 	private String accessToken;
 	private int artistLoadLimit;
@@ -227,63 +271,18 @@ public class YandexMusicSourceManager extends ExtendedAudioSourceManager impleme
 
 	@NotNull
 	private BasicAudioLyrics parseLyrics(String downloadUrl, AudioTrack track, String provider) throws IOException {
-		var lyrics = new ArrayList<AudioLyrics.Line>();
-		var lines = this.getDownloadStrings(downloadUrl, "downloadinfo-text-page");
-		var allText = new StringBuilder();
-
-		for (int i = 0; i < lines.length; i++) {
-			var lyricsLine = this.extractLine(lines[i]);
-			if (lyricsLine == null || lyricsLine.getLine().isEmpty()) {
-				continue;
-			}
-
-			Duration nextTimestamp;
-			if (i + 1 < lines.length) {
-				var line = this.extractLine(lines[i + 1]);
-				nextTimestamp = line != null ? line.getTimestamp() : Duration.ofMillis(track.getDuration());
-			} else {
-				nextTimestamp = Duration.ofMillis(track.getDuration());
-			}
-
-			allText.append(lyricsLine.getLine()).append("\n");
-			lyrics.add(new BasicAudioLyrics.BasicLine(
-				lyricsLine.getTimestamp(),
-				Duration.ofMillis(Math.max(nextTimestamp.toMillis() - lyricsLine.getTimestamp().toMillis(), 0)),
-				lyricsLine.getLine()
-			));
-		}
-
-		return new BasicAudioLyrics(
-			"yandexmusic",
-			provider,
-			allText.toString(),
-			lyrics
-		);
-	}
-
-	@Nullable
-	private BasicAudioLyrics.BasicLine extractLine(String line) {
-		var matcher = EXTRACT_LYRICS_STROKE.matcher(line);
-		if (matcher.find()) {
-			var timestampMillis = (
-				(Integer.parseInt(matcher.group("min")) * 60 * 1000)
-					+ (Integer.parseInt(matcher.group("sec")) * 1000)
-					+ (Integer.parseInt(matcher.group("mil")) * 10)
-			);
-			return new BasicAudioLyrics.BasicLine(
-				Duration.ofMillis(timestampMillis),
-				Duration.ofMillis(0),
-				(matcher.group("text") == null) ? "" : matcher.group("text")
-			);
-		}
-		return null;
+		var lyrics = TimedLyricsBuilder.parseLrc(this.getDownloadStrings(downloadUrl, "downloadinfo-text-page"));
+		// every line of the plain text ends with a newline, including the last one
+		var text = lyrics.size() == 0 ? "" : lyrics.joinLines("\n") + "\n";
+		return lyrics.build(this.getSourceName(), provider, text, track.getDuration());
 	}
 
 	@Override
 	public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference) {
 		try {
 			if (reference.identifier.startsWith(SEARCH_PREFIX)) {
-				return this.getSearch(reference.identifier.substring(SEARCH_PREFIX.length()));
+				var query = reference.identifier.substring(SEARCH_PREFIX.length());
+				return this.cachedSearch(query, () -> this.getSearch(query));
 			}
 
 			if (reference.identifier.startsWith(RECOMMENDATIONS_PREFIX)) {
@@ -401,6 +400,8 @@ public class YandexMusicSourceManager extends ExtendedAudioSourceManager impleme
 		if (json.isNull() || json.get("result").values().get(0).get("available").text().equals("false")) {
 			return AudioReference.NO_TRACK;
 		}
+		// single tracks are usually played right away
+		this.preResolve(List.of(id));
 		return this.parseTrack(json.get("result").values().get(0), domainEnd);
 	}
 
@@ -431,15 +432,24 @@ public class YandexMusicSourceManager extends ExtendedAudioSourceManager impleme
 	}
 
 	private AudioItem getPlaylist(String userString, String id, String domainEnd) throws IOException {
+		// only the track ids are loaded with the playlist, liked songs playlists would otherwise return a huge response in one go
 		var json = this.getJson(
 			PUBLIC_API_BASE + "/users/" + userString + "/playlists/" + id
 				+ "?page-size=" + PLAYLIST_MAX_PAGE_ITEMS * playlistLoadLimit
-				+ "&rich-tracks=true"
+				+ "&rich-tracks=false"
 		);
 		if (json.isNull() || json.get("result").isNull() || json.get("result").get("tracks").values().isEmpty()) {
 			return AudioReference.NO_TRACK;
 		}
-		var tracks = this.parseTracks(json.get("result").get("tracks"), domainEnd);
+		var trackIds = new ArrayList<String>();
+		for (var item : json.get("result").get("tracks").values()) {
+			var trackId = item.get("id").text();
+			if (trackId == null) {
+				continue;
+			}
+			trackIds.add(item.get("albumId").isNull() ? trackId : trackId + ":" + item.get("albumId").text());
+		}
+		var tracks = this.getTracks(trackIds, domainEnd);
 		if (tracks.isEmpty()) {
 			return AudioReference.NO_TRACK;
 		}
@@ -463,6 +473,161 @@ public class YandexMusicSourceManager extends ExtendedAudioSourceManager impleme
 		);
 	}
 
+	/**
+	 * Loads the tracks in chunks of {@link #TRACKS_MAX_IDS}, with up to {@link #TRACKS_MAX_CHUNKS_IN_FLIGHT} chunks in parallel, keeping the order of the ids.
+	 */
+	private List<AudioTrack> getTracks(List<String> ids, String domainEnd) throws IOException {
+		var inFlight = new ArrayDeque<CompletableFuture<List<AudioTrack>>>(TRACKS_MAX_CHUNKS_IN_FLIGHT);
+		var tracks = new ArrayList<AudioTrack>(ids.size());
+		var from = 0;
+		try {
+			while (from < ids.size() || !inFlight.isEmpty()) {
+				while (from < ids.size() && inFlight.size() < TRACKS_MAX_CHUNKS_IN_FLIGHT) {
+					inFlight.add(this.loadTracksChunk(ids.subList(from, Math.min(from + TRACKS_MAX_IDS, ids.size())), domainEnd));
+					from += TRACKS_MAX_IDS;
+				}
+				tracks.addAll(inFlight.remove().join());
+			}
+		} catch (CompletionException e) {
+			for (var chunk : inFlight) {
+				chunk.cancel(false);
+			}
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw e;
+		}
+		return tracks;
+	}
+
+	private CompletableFuture<List<AudioTrack>> loadTracksChunk(List<String> ids, String domainEnd) {
+		var chunk = String.join(",", ids);
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				var json = this.getJson(PUBLIC_API_BASE + "/tracks?track-ids=" + URLEncoder.encode(chunk, StandardCharsets.UTF_8));
+				if (json == null || json.isNull() || json.get("result").isNull()) {
+					return List.<AudioTrack>of();
+				}
+				return this.parseTracks(json.get("result"), domainEnd);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, this.executor);
+	}
+
+	/**
+	 * @return the signed mp3 download url of the track, cached for {@link #DOWNLOAD_URL_TTL}
+	 */
+	public String getDownloadUrl(String id) throws IOException, NoSuchAlgorithmException {
+		var downloadUrl = this.downloadUrls.get(id);
+		if (downloadUrl != null) {
+			return downloadUrl;
+		}
+		downloadUrl = this.resolveDownloadUrl(id);
+		this.downloadUrls.put(id, downloadUrl);
+		return downloadUrl;
+	}
+
+	public void invalidateDownloadUrl(String id) {
+		this.downloadUrls.invalidate(id);
+	}
+
+	/**
+	 * Resolves the download urls of the first {@link #PRE_RESOLVE_MAX_IDS} given tracks in the background, so they can start without any extra round trips.
+	 * Tracks which are already resolved or being resolved are skipped, and so are all tracks once the queue is full.
+	 *
+	 * @param ids numeric track ids, optionally followed by {@code :albumId}
+	 * @throws IllegalArgumentException if any of the ids is malformed
+	 */
+	public void preResolve(Collection<String> ids) {
+		for (var id : ids) {
+			if (id == null || !TRACK_ID_PATTERN.matcher(id).matches()) {
+				throw new IllegalArgumentException("Invalid yandex music track id: " + id);
+			}
+		}
+		var count = 0;
+		for (var id : ids) {
+			if (count++ >= PRE_RESOLVE_MAX_IDS) {
+				break;
+			}
+			if (this.downloadUrls.get(id) != null || !this.pendingPreResolves.add(id)) {
+				continue;
+			}
+			try {
+				this.preResolveExecutor.execute(() -> {
+					try {
+						this.getDownloadUrl(id);
+					} catch (Exception e) {
+						log.debug("Failed to pre-resolve download url for yandex music track {}", id, e);
+					} finally {
+						this.pendingPreResolves.remove(id);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				this.pendingPreResolves.remove(id);
+				log.debug("Skipping pre-resolve of yandex music track {}, too many pending", id);
+			}
+		}
+	}
+
+	private String resolveDownloadUrl(String id) throws IOException, NoSuchAlgorithmException {
+		var json = this.getJson(PUBLIC_API_BASE + "/tracks/" + id + "/download-info");
+		if (json.isNull() || json.get("result").values().isEmpty()) {
+			throw new IllegalStateException("No download URL found for track " + id);
+		}
+
+		String mp3ItemUrl = null;
+		var bitrate = -1L;
+		for (var item : json.get("result").values()) {
+			if (!"mp3".equals(item.get("codec").text())) {
+				continue;
+			}
+			var itemBitrate = item.get("bitrateInKbps").asLong(0);
+			if (itemBitrate > bitrate) {
+				bitrate = itemBitrate;
+				mp3ItemUrl = item.get("downloadInfoUrl").text();
+			}
+		}
+		if (mp3ItemUrl == null) {
+			throw new IllegalStateException("No download Mp3 item URL found for track " + id);
+		}
+
+		var downloadInfo = String.join("", this.getDownloadStrings(mp3ItemUrl, "downloadinfo-xml-page"));
+		if (downloadInfo.isEmpty()) {
+			throw new IllegalStateException("No downloadInfo found for track " + id);
+		}
+
+		var host = xmlText(downloadInfo, "host");
+		var path = xmlText(downloadInfo, "path");
+		var ts = xmlText(downloadInfo, "ts");
+		var s = xmlText(downloadInfo, "s");
+
+		var digest = MessageDigest.getInstance("MD5").digest(("XGRlBW9FXlekgbPrRHuSiA" + path + s).getBytes(StandardCharsets.UTF_8));
+		var md5 = new char[digest.length * 2];
+		for (var i = 0; i < digest.length; i++) {
+			md5[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+			md5[i * 2 + 1] = HEX[digest[i] & 0xF];
+		}
+
+		return "https://" + host + "/get-mp3/" + new String(md5) + "/" + ts + path;
+	}
+
+	/**
+	 * Extracts the text of the first {@code <tag>} of the small flat download info document without building a DOM.
+	 */
+	private static String xmlText(String xml, String tag) {
+		var start = xml.indexOf("<" + tag + ">");
+		if (start == -1) {
+			throw new IllegalStateException("No " + tag + " found in downloadInfo");
+		}
+		start += tag.length() + 2;
+		var end = xml.indexOf("</" + tag + ">", start);
+		if (end == -1) {
+			throw new IllegalStateException("No " + tag + " found in downloadInfo");
+		}
+		return xml.substring(start, end).trim();
+	}
+
 	public JsonBrowser getJson(String uri) throws IOException {
 		var request = new HttpGet(uri);
 		request.setHeader("Accept", "application/json");
@@ -579,8 +744,12 @@ public class YandexMusicSourceManager extends ExtendedAudioSourceManager impleme
 	}
 
 	@Override
-	public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException {
-		var extendedAudioTrackInfo = super.decodeTrack(input);
+	protected List<String> getUrlPrefixes() {
+		return URL_PREFIXES;
+	}
+
+	@Override
+	protected AudioTrack createTrack(AudioTrackInfo trackInfo, ExtendedAudioTrackInfo extendedAudioTrackInfo) {
 		return new YandexMusicAudioTrack(trackInfo,
 			extendedAudioTrackInfo.albumName,
 			extendedAudioTrackInfo.albumUrl,
@@ -602,6 +771,8 @@ public class YandexMusicSourceManager extends ExtendedAudioSourceManager impleme
 
 	@Override
 	public void shutdown() {
+		this.executor.shutdownNow();
+		this.preResolveExecutor.shutdownNow();
 		try {
 			this.httpInterfaceManager.close();
 		} catch (IOException e) {
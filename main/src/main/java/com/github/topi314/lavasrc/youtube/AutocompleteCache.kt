@@ -0,0 +1,48 @@
+package com.github.topi314.lavasrc.youtube
+
+import com.github.topi314.lavasrc.cache.ExpiringCache
+import java.time.Duration
+import java.util.*
+
+/**
+ * Caches autocomplete results by normalized prefix.
+ *
+ * A result with less suggestions than [SUGGESTION_LIMIT] was not cut off,
+ * so every longer prefix can be answered from it by narrowing it down with [getOrNarrow].
+ */
+internal class AutocompleteCache<T : Any>(maxSize: Int, ttl: Duration) {
+    companion object {
+        const val SUGGESTION_LIMIT = 10
+
+        private val whitespace = "\\s+".toRegex()
+
+        fun normalize(query: String) = query.trimStart().replace(whitespace, " ").lowercase(Locale.ROOT)
+    }
+
+    private val entries = ExpiringCache<String, Entry<T>>(maxSize, ttl)
+
+    fun get(query: String): T? = entries.get(normalize(query))?.value
+
+    /**
+     * Returns the result cached for the exact prefix, or narrows down the result of the longest cached shorter prefix if it was complete.
+     */
+    fun getOrNarrow(query: String, narrow: (T, String) -> T): T? {
+        val normalized = normalize(query)
+        entries.get(normalized)?.let { return it.value }
+
+        for (end in normalized.length - 1 downTo 1) {
+            val entry = entries.get(normalized.substring(0, end)) ?: continue
+            // shorter prefixes match even more suggestions, so they are cut off as well
+            return if (entry.complete) narrow(entry.value, normalized) else null
+        }
+        return null
+    }
+
+    fun put(query: String, value: T, suggestions: Int) {
+        entries.put(normalize(query), Entry(value, suggestions < SUGGESTION_LIMIT))
+    }
+
+    fun clear() = entries.clear()
+
+    private class Entry<T>(val value: T, val complete: Boolean)
+}
@@ -9,7 +9,9 @@ import com.github.topi314.lavasearch.result.AudioText
 import com.github.topi314.lavasearch.result.BasicAudioSearchResult
 import com.github.topi314.lavasearch.result.BasicAudioText
 import com.github.topi314.lavasrc.ExtendedAudioPlaylist
+import com.github.topi314.lavasrc.youtube.innertube.InnerTubeBox
 import com.github.topi314.lavasrc.youtube.innertube.MusicResponsiveListItemRenderer
+import com.github.topi314.lavasrc.youtube.innertube.SearchSuggestionsSectionRendererContent
 import com.github.topi314.lavasrc.youtube.innertube.requestLyrics
 import com.github.topi314.lavasrc.youtube.innertube.requestMusicAutoComplete
 import com.github.topi314.lavasrc.youtube.innertube.takeFirstSearchResult
@@ -20,11 +22,35 @@ import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo
 import dev.schlaubi.lyrics.LyricsNotFoundException
 import dev.lavalink.youtube.YoutubeAudioSourceManager
 import dev.lavalink.youtube.track.YoutubeAudioTrack
+import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.JsonArray
+import kotlinx.serialization.json.JsonPrimitive
+import kotlinx.serialization.json.contentOrNull
+import kotlinx.serialization.json.jsonArray
 import org.apache.http.client.methods.HttpGet
 import java.net.URLEncoder
+import java.time.Duration
 import com.github.topi314.lavasrc.youtube.innertube.MusicResponsiveListItemRenderer.NavigationEndpoint.BrowseEndpoint.Configs.Config.Type as PageType
 
-private val searchPattern = """\["([\w\s]+)",\s*\d+,\s*\[(?:\d+,?\s*)+]""".toRegex()
+/**
+ * Parses the hints out of a jsonp response like `window.google.ac.h(["query",[["hint",0,[512]],...],{...}])`.
+ *
+ * @return the hints or null if the response is not in that format
+ */
+private fun parseAutoComplete(input: String): List<String>? {
+    val start = input.indexOf('[')
+    val end = input.lastIndexOf(']')
+    if (start == -1 || end < start) {
+        return null
+    }
+    val response = try {
+        Json.parseToJsonElement(input.substring(start, end + 1)).jsonArray
+    } catch (e: IllegalArgumentException) {
+        return null
+    }
+    val suggestions = response.getOrNull(1) as? JsonArray ?: return null
+    return suggestions.mapNotNull { ((it as? JsonArray)?.getOrNull(0) as? JsonPrimitive)?.contentOrNull }
+}
 
 private fun MusicResponsiveListItemRenderer.NavigationEndpoint.toUrl() = when {
     browseEndpoint != null -> when (browseEndpoint.browseEndpointContextSupportedConfigs.browseEndpointContextMusicConfig.pageType) {
@@ -50,9 +76,16 @@ class YoutubeSearchManager(
             AudioSearchResult.Type.TRACK,
             AudioSearchResult.Type.TEXT
         )
+        const val AUTOCOMPLETE_CACHE_SIZE = 10_000
+        const val MUSIC_AUTOCOMPLETE_CACHE_SIZE = 1_000
+        val AUTOCOMPLETE_CACHE_TTL: Duration = Duration.ofHours(1)
     }
 
     private val httpInterfaceManager = HttpClientTools.createDefaultThreadLocalManager()
+    private val autocompleteCache = AutocompleteCache<List<String>>(AUTOCOMPLETE_CACHE_SIZE, AUTOCOMPLETE_CACHE_TTL)
+    private val musicAutocompleteCache =
+        AutocompleteCache<InnerTubeBox<SearchSuggestionsSectionRendererContent>>(MUSIC_AUTOCOMPLETE_CACHE_SIZE, AUTOCOMPLETE_CACHE_TTL)
+
     override fun getSourceName(): String = "youtube"
 
     override fun loadLyrics(track: AudioTrack): AudioLyrics? = try {
@@ -70,18 +103,21 @@ class YoutubeSearchManager(
     }
 
     override fun loadSearch(query: String, types: Set<AudioSearchResult.Type>): AudioSearchResult? {
-        val result = httpInterfaceManager.`interface`.use {
-            when {
-                query.startsWith(MUSIC_SEARCH_PREFIX) ->
-                    it.requestMusicAutoComplete(query.removePrefix(MUSIC_SEARCH_PREFIX))
-
-                query.startsWith(SEARCH_PREFIX) -> {
-                    val response = requestYoutubeAutoComplete(query.removePrefix(SEARCH_PREFIX))
-                    return BasicAudioSearchResult(emptyList(), emptyList(), emptyList(), emptyList(), response)
-                }
+        val result = when {
+            query.startsWith(MUSIC_SEARCH_PREFIX) -> {
+                val input = query.removePrefix(MUSIC_SEARCH_PREFIX)
+                // music suggestions contain tracks and albums which can't be narrowed down by text, so only exact prefixes are reused
+                musicAutocompleteCache.get(input) ?: httpInterfaceManager.`interface`.use {
+                    it.requestMusicAutoComplete(input)
+                }.also { musicAutocompleteCache.put(input, it, Int.MAX_VALUE) }
+            }
 
-                else -> return null
+            query.startsWith(SEARCH_PREFIX) -> {
+                val response = requestYoutubeAutoComplete(query.removePrefix(SEARCH_PREFIX)).map(::BasicAudioText)
+                return BasicAudioSearchResult(emptyList(), emptyList(), emptyList(), emptyList(), response)
             }
+
+            else -> return null
         }
 
         val items = result.contents.flatMap {
@@ -161,19 +197,28 @@ class YoutubeSearchManager(
         )
     }
 
-    private fun requestYoutubeAutoComplete(query: String): List<AudioText> {
+    private fun requestYoutubeAutoComplete(query: String): List<String> {
+        autocompleteCache.getOrNarrow(query) { hints, prefix ->
+            hints.filter { AutocompleteCache.normalize(it).startsWith(prefix) }
+        }?.let { return it }
+
         val input = httpInterfaceManager.`interface`.use {
             val encodedQuery = URLEncoder.encode(query, Charsets.UTF_8)
             val request =
-                HttpGet("https://suggestqueries-clients6.youtube.com/complete/search?client=youtube&q=$encodedQuery")
-            it.execute(request).entity.content.readAllBytes().decodeToString()
+                HttpGet("https://suggestqueries-clients6.youtube.com/complete/search?client=youtube&gl=$region&q=$encodedQuery")
+            it.execute(request).use { response ->
+                if (!HttpClientTools.isSuccessWithContent(response.statusLine.statusCode)) {
+                    null
+                } else {
+                    response.entity.content.readAllBytes().decodeToString()
+                }
+            }
         }
 
-        return searchPattern.findAll(input).map {
-            val (hint) = it.destructured
-
-            BasicAudioText(hint)
-        }.toList()
+        // failed requests are not cached, an empty result would count as complete and answer every longer prefix
+        val hints = input?.let(::parseAutoComplete) ?: return emptyList()
+        autocompleteCache.put(query, hints, hints.size)
+        return hints
     }
 
     override fun shutdown() = httpInterfaceManager.close()
@@ -1,36 +1,78 @@
 package com.github.topi314.lavasrc.plugin;
 
+import com.github.topi314.lavalyrics.AudioLyricsManager;
 import com.github.topi314.lavalyrics.LyricsManager;
 import com.github.topi314.lavalyrics.api.LyricsManagerConfiguration;
+import com.github.topi314.lavasearch.AudioSearchManager;
 import com.github.topi314.lavasearch.SearchManager;
 import com.github.topi314.lavasearch.api.SearchManagerConfiguration;
+import com.github.topi314.lavasrc.ExtendedAudioSourceManager;
 import com.github.topi314.lavasrc.applemusic.AppleMusicSourceManager;
 import com.github.topi314.lavasrc.deezer.DeezerAudioSourceManager;
+import com.github.topi314.lavasrc.flowerytts.FloweryTTSCache;
 import com.github.topi314.lavasrc.flowerytts.FloweryTTSSourceManager;
 import com.github.topi314.lavasrc.jiosaaavn.JioSavaanSourceManager;
+import com.github.topi314.lavasrc.lyrics.CachingAudioLyricsManager;
+import com.github.topi314.lavasrc.lyrics.FederatedLyricsManager;
+import com.github.topi314.lavasrc.lyrics.LyricsCache;
+import com.github.topi314.lavasrc.lyrics.LyricsPrefetcher;
 import com.github.topi314.lavasrc.mirror.DefaultMirroringAudioTrackResolver;
 import com.github.topi314.lavasrc.plugin.config.*;
+import com.github.topi314.lavasrc.search.CachingAudioSearchManager;
+import com.github.topi314.lavasrc.search.FederatedAudioSearchManager;
+import com.github.topi314.lavasrc.search.SearchResultCache;
+import com.github.topi314.lavasrc.search.SupersedingAudioSearchManager;
 import com.github.topi314.lavasrc.spotify.SpotifySourceManager;
 import com.github.topi314.lavasrc.vkmusic.VkMusicSourceManager;
 import com.github.topi314.lavasrc.tidal.TidalSourceManager;
 import com.github.topi314.lavasrc.yandexmusic.YandexMusicSourceManager;
 import com.github.topi314.lavasrc.youtube.YoutubeSearchManager;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import dev.arbjerg.lavalink.api.AudioPlayerManagerConfiguration;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 
 @Service
 @RestController
 public class LavaSrcPlugin implements AudioPlayerManagerConfiguration, SearchManagerConfiguration, LyricsManagerConfiguration {
 
+	public static final String SEARCH_SESSION_HEADER = "LavaSrc-Search-Session";
 	private static final Logger log = LoggerFactory.getLogger(LavaSrcPlugin.class);
 
 	private final SourcesConfig sourcesConfig;
 	private final LyricsSourcesConfig lyricsSourcesConfig;
+	private final LyricsConfig lyricsConfig;
+	private final SearchConfig searchConfig;
+	private final LyricsCache lyricsCache;
+	private final SearchResultCache searchCache;
+	private List<AudioLyricsManager> lyricsManagers = List.of();
+	private LyricsPrefetcher lyricsPrefetcher;
 	private AudioPlayerManager manager;
 	private SpotifySourceManager spotify;
 	private AppleMusicSourceManager appleMusic;
@@ -42,10 +84,17 @@ public class LavaSrcPlugin implements AudioPlayerManagerConfiguration, SearchMan
 	private TidalSourceManager tidal;
 	private JioSavaanSourceManager jioSaavn;
 
-	public LavaSrcPlugin(LavaSrcConfig pluginConfig, SourcesConfig sourcesConfig, LyricsSourcesConfig lyricsSourcesConfig, SpotifyConfig spotifyConfig, AppleMusicConfig appleMusicConfig, YandexMusicConfig yandexMusicConfig, FloweryTTSConfig floweryTTSConfig, YouTubeConfig youTubeConfig, VkMusicConfig vkMusicConfig, TidalConfig tidalConfig) {
+	public LavaSrcPlugin(LavaSrcConfig pluginConfig, SourcesConfig sourcesConfig, LyricsSourcesConfig lyricsSourcesConfig, SpotifyConfig spotifyConfig, AppleMusicConfig appleMusicConfig, DeezerConfig deezerConfig, YandexMusicConfig yandexMusicConfig, FloweryTTSConfig floweryTTSConfig, YouTubeConfig youTubeConfig, VkMusicConfig vkMusicConfig, TidalConfig tidalConfig, LyricsConfig lyricsConfig, SearchConfig searchConfig) {
 		log.info("Loading LavaSrc plugin...");
 		this.sourcesConfig = sourcesConfig;
 		this.lyricsSourcesConfig = lyricsSourcesConfig;
+		this.lyricsConfig = lyricsConfig;
+		this.searchConfig = searchConfig;
+		if (lyricsConfig.getCacheSize() > 0) {
+			this.lyricsCache = new LyricsCache(lyricsConfig.getCacheSize(), Duration.ofSeconds(lyricsConfig.getCacheTtl()), Duration.ofSeconds(lyricsConfig.getNotFoundCacheTtl()));
+		} else {
+			this.lyricsCache = null;
+		}
 
 		if (sourcesConfig.isSpotify() || lyricsSourcesConfig.isSpotify()) {
 			this.spotify = new SpotifySourceManager(spotifyConfig.getClientId(), spotifyConfig.getClientSecret(), spotifyConfig.getSpDc(), spotifyConfig.getCountryCode(), unused -> manager, new DefaultMirroringAudioTrackResolver(pluginConfig.getProviders()));
@@ -61,6 +110,9 @@ public class LavaSrcPlugin implements AudioPlayerManagerConfiguration, SearchMan
 			if (spotifyConfig.isLocalFiles()) {
 				this.spotify.setLocalFiles(spotifyConfig.isLocalFiles());
 			}
+			if (spotifyConfig.isLazyAlbumIsrc()) {
+				this.spotify.setLazyAlbumIsrc(spotifyConfig.isLazyAlbumIsrc());
+			}
 		}
 		if (sourcesConfig.isAppleMusic()) {
 			this.appleMusic = new AppleMusicSourceManager(pluginConfig.getProviders(), appleMusicConfig.getMediaAPIToken(), appleMusicConfig.getCountryCode(), unused -> manager);
@@ -73,6 +125,15 @@ public class LavaSrcPlugin implements AudioPlayerManagerConfiguration, SearchMan
 		}
 		if (sourcesConfig.isDeezer() || lyricsSourcesConfig.isDeezer()) {
 			this.deezer = new DeezerAudioSourceManager(unused -> manager, new DefaultMirroringAudioTrackResolver(pluginConfig.getProviders()));
+			if (deezerConfig.getMasterDecryptionKey() != null && !deezerConfig.getMasterDecryptionKey().isEmpty()) {
+				this.deezer.setMasterDecryptionKey(deezerConfig.getMasterDecryptionKey());
+			}
+			if (deezerConfig.getArl() != null && !deezerConfig.getArl().isEmpty()) {
+				this.deezer.setArl(deezerConfig.getArl());
+			}
+			if (deezerConfig.getFormats() != null && deezerConfig.getFormats().length > 0) {
+				this.deezer.setFormats(deezerConfig.getFormats());
+			}
 		}
 		if (sourcesConfig.isYandexMusic() || lyricsSourcesConfig.isYandexMusic()) {
 			this.yandexMusic = new YandexMusicSourceManager(yandexMusicConfig.getAccessToken());
@@ -100,6 +161,17 @@ public class LavaSrcPlugin implements AudioPlayerManagerConfiguration, SearchMan
 			if (floweryTTSConfig.getAudioFormat() != null) {
 				this.flowerytts.setAudioFormat(floweryTTSConfig.getAudioFormat());
 			}
+			if (floweryTTSConfig.getCacheSize() > 0 || floweryTTSConfig.getCachePath() != null) {
+				try {
+					this.flowerytts.setCache(new FloweryTTSCache(
+						floweryTTSConfig.getCacheSize(),
+						floweryTTSConfig.getCachePath() == null ? null : Path.of(floweryTTSConfig.getCachePath()),
+						floweryTTSConfig.getCacheMaxDiskSize() * 1024 * 1024
+					));
+				} catch (IOException e) {
+					log.error("Failed to create Flowery TTS cache, clips will not be cached", e);
+				}
+			}
 		}
 		if (sourcesConfig.isYoutube() || lyricsSourcesConfig.isYoutube()) {
 			if (hasNewYoutubeSource()) {
@@ -136,6 +208,13 @@ public class LavaSrcPlugin implements AudioPlayerManagerConfiguration, SearchMan
 		if (sourcesConfig.isJiosaavn()) {
 			this.jioSaavn = new JioSavaanSourceManager();
 		}
+
+		this.searchCache = searchConfig.getCacheSize() > 0 ? new SearchResultCache(searchConfig.getCacheSize(), Duration.ofSeconds(searchConfig.getCacheTtl())) : null;
+		for (var sourceManager : new ExtendedAudioSourceManager[]{this.spotify, this.appleMusic, this.deezer, this.yandexMusic, this.vkMusic, this.tidal, this.jioSaavn}) {
+			if (sourceManager != null) {
+				sourceManager.setSearchCache(this.searchCache);
+			}
+		}
 	}
 
 	private boolean hasNewYoutubeSource() {
@@ -189,29 +268,42 @@ public class LavaSrcPlugin implements AudioPlayerManagerConfiguration, SearchMan
 	@Override
 	@NotNull
 	public SearchManager configure(@NotNull SearchManager manager) {
+		var federated = new FederatedAudioSearchManager(Duration.ofMillis(this.searchConfig.getDeadline()));
 		if (this.spotify != null && this.sourcesConfig.isSpotify()) {
 			log.info("Registering Spotify search manager...");
-			manager.registerSearchManager(this.spotify);
+			manager.registerSearchManager(this.superseding(this.spotify));
+			federated.addProvider(this.cachedSearch(this.spotify), SpotifySourceManager.SEARCH_PREFIX);
 		}
 		if (this.appleMusic != null && this.sourcesConfig.isAppleMusic()) {
 			log.info("Registering Apple Music search manager...");
-			manager.registerSearchManager(this.appleMusic);
+			manager.registerSearchManager(this.superseding(this.appleMusic));
+			federated.addProvider(this.cachedSearch(this.appleMusic), AppleMusicSourceManager.SEARCH_PREFIX);
 		}
 		if (this.deezer != null && this.sourcesConfig.isDeezer()) {
 			log.info("Registering Deezer search manager...");
-			manager.registerSearchManager(this.deezer);
+			manager.registerSearchManager(this.superseding(this.deezer));
+			federated.addProvider(this.cachedSearch(this.deezer), DeezerAudioSourceManager.SEARCH_PREFIX);
 		}
 		if (this.youtube != null && this.sourcesConfig.isYoutube()) {
 			log.info("Registering Youtube search manager...");
-			manager.registerSearchManager(this.youtube);
+			manager.registerSearchManager(this.superseding(this.youtube));
+			federated.addProvider(this.cachedSearch(this.youtube), YoutubeSearchManager.MUSIC_SEARCH_PREFIX);
 		}
 		if (this.yandexMusic != null && this.sourcesConfig.isYandexMusic()) {
 			log.info("Registering Yandex Music search manager...");
-			manager.registerSearchManager(this.yandexMusic);
+			manager.registerSearchManager(this.superseding(this.yandexMusic));
+			federated.addProvider(this.cachedSearch(this.yandexMusic), YandexMusicSourceManager.SEARCH_PREFIX);
 		}
 		if (this.vkMusic != null && this.sourcesConfig.isVkMusic()) {
 			log.info("Registering VK Music search manager...");
-			manager.registerSearchManager(this.vkMusic);
+			manager.registerSearchManager(this.superseding(this.vkMusic));
+			federated.addProvider(this.cachedSearch(this.vkMusic), VkMusicSourceManager.SEARCH_PREFIX);
+		}
+		if (this.searchConfig.isFederated() && federated.getProviderCount() > 1) {
+			log.info("Registering federated search manager for {} search managers...", federated.getProviderCount());
+			manager.registerSearchManager(this.superseding(federated));
+		} else {
+			federated.shutdown();
 		}
 		return manager;
 	}
@@ -219,26 +311,181 @@ public class LavaSrcPlugin implements AudioPlayerManagerConfiguration, SearchMan
 	@NotNull
 	@Override
 	public LyricsManager configure(@NotNull LyricsManager manager) {
+		var lyricsManagers = new ArrayList<AudioLyricsManager>();
 		if (this.spotify != null && this.lyricsSourcesConfig.isSpotify()) {
 			log.info("Registering Spotify lyrics manager...");
-			manager.registerLyricsManager(this.spotify);
+			lyricsManagers.add(this.cached(this.spotify));
 		}
 		if (this.deezer != null && this.lyricsSourcesConfig.isDeezer()) {
 			log.info("Registering Deezer lyrics manager...");
-			manager.registerLyricsManager(this.deezer);
+			lyricsManagers.add(this.cached(this.deezer));
 		}
 		if (this.youtube != null && this.lyricsSourcesConfig.isYoutube()) {
 			log.info("Registering YouTube lyrics manager...");
-			manager.registerLyricsManager(this.youtube);
+			lyricsManagers.add(this.cached(this.youtube));
 		}
 		if (this.yandexMusic != null && this.lyricsSourcesConfig.isYandexMusic()) {
 			log.info("Registering Yandex Music lyrics manager");
-			manager.registerLyricsManager(this.yandexMusic);
+			lyricsManagers.add(this.cached(this.yandexMusic));
 		}
 		if (this.vkMusic != null && this.lyricsSourcesConfig.isVkMusic()) {
 			log.info("Registering VK Music lyrics manager...");
-			manager.registerLyricsManager(this.vkMusic);
+			lyricsManagers.add(this.cached(this.vkMusic));
+		}
+
+		FederatedLyricsManager federated = null;
+		if (this.lyricsConfig.isFederated() && lyricsManagers.size() > 1) {
+			log.info("Registering federated lyrics manager...");
+			federated = new FederatedLyricsManager(lyricsManagers, Duration.ofMillis(this.lyricsConfig.getHedgeDelay()), Duration.ofMillis(this.lyricsConfig.getDeadline()));
+			// registered first, so LavaLyrics asks it before the single sources unless the track's own source is preferred
+			manager.registerLyricsManager(federated);
+		}
+		for (var lyricsManager : lyricsManagers) {
+			manager.registerLyricsManager(lyricsManager);
+		}
+		if (federated != null) {
+			// the lyrics window and the prefetcher go through the federated manager, it already asks all the others
+			lyricsManagers = new ArrayList<>(List.of(federated));
+		}
+
+		this.lyricsManagers = lyricsManagers;
+
+		if (this.lyricsConfig.isPrefetch() && this.lyricsCache != null && !lyricsManagers.isEmpty()) {
+			log.info("Enabling lyrics prefetching...");
+			this.lyricsPrefetcher = new LyricsPrefetcher(lyricsManagers);
 		}
 		return manager;
 	}
+
+	/**
+	 * @return the lyrics managers to load lyrics through, in the order they should be tried
+	 */
+	public List<AudioLyricsManager> getLyricsManagers() {
+		return this.lyricsManagers;
+	}
+
+	@Nullable
+	public LyricsPrefetcher getLyricsPrefetcher() {
+		return this.lyricsPrefetcher;
+	}
+
+	private AudioSearchManager superseding(AudioSearchManager searchManager) {
+		return new SupersedingAudioSearchManager(this.cachedSearch(searchManager), LavaSrcPlugin::searchSessionOf);
+	}
+
+	private AudioSearchManager cachedSearch(AudioSearchManager searchManager) {
+		if (this.searchCache == null || searchManager instanceof FederatedAudioSearchManager) {
+			return searchManager;
+		}
+		return new CachingAudioSearchManager(searchManager, this.searchCache);
+	}
+
+	@Nullable
+	private static String searchSessionOf() {
+		var attributes = RequestContextHolder.getRequestAttributes();
+		if (!(attributes instanceof ServletRequestAttributes)) {
+			return null;
+		}
+		return ((ServletRequestAttributes) attributes).getRequest().getHeader(SEARCH_SESSION_HEADER);
+	}
+
+	private AudioLyricsManager cached(AudioLyricsManager lyricsManager) {
+		if (this.lyricsCache == null) {
+			return lyricsManager;
+		}
+		return new CachingAudioLyricsManager(lyricsManager, this.lyricsCache);
+	}
+
+	@PostMapping(value = "/v4/lavasrc/tracks/encode", produces = MediaType.TEXT_PLAIN_VALUE)
+	public String encodeTracks(@RequestBody List<String> encodedTracks) {
+		try {
+			ExtendedAudioSourceManager sourceManager = null;
+			var tracks = new ArrayList<AudioTrack>(encodedTracks.size());
+			for (var encodedTrack : encodedTracks) {
+				var holder = this.manager.decodeTrack(new MessageInput(new ByteArrayInputStream(Base64.getDecoder().decode(encodedTrack))));
+				if (holder == null || holder.decodedTrack == null || !(holder.decodedTrack.getSourceManager() instanceof ExtendedAudioSourceManager)) {
+					throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only tracks of LavaSrc sources can be bulk encoded");
+				}
+				var track = holder.decodedTrack;
+				if (sourceManager == null) {
+					sourceManager = (ExtendedAudioSourceManager) track.getSourceManager();
+				} else if (track.getSourceManager() != sourceManager) {
+					throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "All tracks must be of the same source");
+				}
+				tracks.add(track);
+			}
+			if (sourceManager == null) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No tracks to encode");
+			}
+
+			var bytes = new ByteArrayOutputStream();
+			var output = new DataOutputStream(bytes);
+			output.writeUTF(sourceManager.getSourceName());
+			sourceManager.encodeTracks(tracks, output);
+			return Base64.getEncoder().encodeToString(bytes.toByteArray());
+		} catch (IOException | IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Failed to encode tracks: " + e.getMessage(), e);
+		}
+	}
+
+	@PostMapping(value = "/v4/lavasrc/tracks/decode", consumes = MediaType.TEXT_PLAIN_VALUE)
+	public List<String> decodeTracks(@RequestBody String frame) throws IOException {
+		List<AudioTrack> tracks;
+		try {
+			var input = new DataInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(frame.trim())));
+			var sourceName = input.readUTF();
+			var sourceManager = this.registeredSource(sourceName);
+			if (sourceManager == null) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Source " + sourceName + " is not enabled");
+			}
+			tracks = sourceManager.decodeTracks(input);
+		} catch (IOException | IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid track frame: " + e.getMessage(), e);
+		}
+
+		var encodedTracks = new ArrayList<String>(tracks.size());
+		for (var track : tracks) {
+			var bytes = new ByteArrayOutputStream();
+			this.manager.encodeTrack(new MessageOutput(bytes), track);
+			encodedTracks.add(Base64.getEncoder().encodeToString(bytes.toByteArray()));
+		}
+		return encodedTracks;
+	}
+
+	@Nullable
+	private ExtendedAudioSourceManager registeredSource(String sourceName) {
+		for (var sourceManager : new ExtendedAudioSourceManager[]{this.spotify, this.appleMusic, this.deezer, this.yandexMusic, this.vkMusic, this.tidal, this.jioSaavn}) {
+			// spotify and deezer can be created for lyrics only without being registered
+			if (sourceManager != null && sourceManager.getSourceName().equals(sourceName) && this.manager.source(sourceManager.getClass()) == sourceManager) {
+				return sourceManager;
+			}
+		}
+		return null;
+	}
+
+	@PostMapping("/v4/lavasrc/yandexmusic/preresolve")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public void preResolveYandexMusic(@RequestBody List<String> identifiers) {
+		if (this.yandexMusic == null || !this.sourcesConfig.isYandexMusic()) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Yandex Music source is not enabled");
+		}
+		try {
+			this.yandexMusic.preResolve(identifiers);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+		}
+	}
+
+	@PostMapping("/v4/lavasrc/vkmusic/preresolve")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public void preResolveVkMusic(@RequestBody List<String> identifiers) throws IOException {
+		if (this.vkMusic == null || !this.sourcesConfig.isVkMusic()) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Vk Music source is not enabled");
+		}
+		try {
+			this.vkMusic.preResolve(identifiers);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+		}
+	}
 }
@@ -0,0 +1,33 @@
+package com.github.topi314.lavasrc.plugin;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.player.event.AudioEventAdapter;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import dev.arbjerg.lavalink.api.IPlayer;
+import dev.arbjerg.lavalink.api.ISocketContext;
+import dev.arbjerg.lavalink.api.PluginEventHandler;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Service;
+
+@Service
+public class LavaSrcPluginEventHandler extends PluginEventHandler {
+
+	private final LavaSrcPlugin plugin;
+
+	public LavaSrcPluginEventHandler(LavaSrcPlugin plugin) {
+		this.plugin = plugin;
+	}
+
+	@Override
+	public void onNewPlayer(@NotNull ISocketContext context, @NotNull IPlayer player) {
+		player.getAudioPlayer().addListener(new AudioEventAdapter() {
+			@Override
+			public void onTrackStart(AudioPlayer player, AudioTrack track) {
+				var prefetcher = plugin.getLyricsPrefetcher();
+				if (prefetcher != null) {
+					prefetcher.prefetch(track);
+				}
+			}
+		});
+	}
+}
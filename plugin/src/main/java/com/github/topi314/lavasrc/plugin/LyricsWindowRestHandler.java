@@ -0,0 +1,85 @@
+package com.github.topi314.lavasrc.plugin;
+
+import com.github.topi314.lavasrc.cache.ExpiringCache;
+import com.github.topi314.lavasrc.lyrics.CachedAudioLyrics;
+import com.github.topi314.lavasrc.lyrics.LyricsProviders;
+import com.github.topi314.lavasrc.protocol.LyricsWindow;
+import com.github.topi314.lavasrc.protocol.LyricsWindowLine;
+import dev.arbjerg.lavalink.api.ISocketServer;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+/**
+ * Serves the lyrics window of a player. This lives outside of {@link LavaSrcPlugin}, because the socket server depends on the audio player manager the plugin configures.
+ */
+@RestController
+public class LyricsWindowRestHandler {
+
+	private static final int PLAYER_CACHE_SIZE = 1000;
+	private static final Duration PLAYER_CACHE_TTL = Duration.ofMinutes(30);
+
+	private final ISocketServer socketServer;
+	private final LavaSrcPlugin plugin;
+	// clients poll this endpoint, so the lyrics of the current track are kept per player even without the lyrics cache
+	private final ExpiringCache<String, PlayerLyrics> playerLyrics = new ExpiringCache<>(PLAYER_CACHE_SIZE, PLAYER_CACHE_TTL);
+
+	public LyricsWindowRestHandler(ISocketServer socketServer, LavaSrcPlugin plugin) {
+		this.socketServer = socketServer;
+		this.plugin = plugin;
+	}
+
+	@GetMapping("/v4/sessions/{sessionId}/players/{guildId}/lavasrc/lyrics")
+	public LyricsWindow getLyricsWindow(@PathVariable String sessionId, @PathVariable long guildId, @RequestParam(required = false) Long position, @RequestParam(defaultValue = "1") int before, @RequestParam(defaultValue = "3") int after) {
+		var session = this.socketServer.getSessions().get(sessionId);
+		if (session == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Session not found");
+		}
+		var player = session.getPlayers().get(guildId);
+		if (player == null || player.getTrack() == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No track playing");
+		}
+
+		var track = player.getTrack();
+		var key = sessionId + ":" + guildId;
+		var cached = this.playerLyrics.get(key);
+		if (cached == null || !cached.identifier.equals(track.getIdentifier())) {
+			var lyrics = LyricsProviders.loadFirst(this.plugin.getLyricsManagers(), track);
+			cached = new PlayerLyrics(track.getIdentifier(), lyrics == null ? null : CachedAudioLyrics.of(lyrics));
+			this.playerLyrics.put(key, cached);
+		}
+		if (cached.lyrics == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Lyrics not found");
+		}
+
+		var indexed = cached.lyrics;
+		var currentPosition = position != null ? position : track.getPosition();
+		var index = indexed.indexAt(currentPosition);
+		var from = Math.max(index - Math.max(before, 0), 0);
+		var to = Math.min(index + Math.max(after, 0), indexed.size() - 1);
+		var lines = new ArrayList<LyricsWindowLine>(Math.max(to - from + 1, 0));
+		for (var i = from; i <= to; i++) {
+			var duration = indexed.getDuration(i);
+			lines.add(new LyricsWindowLine(i, indexed.getTimestamp(i), duration == CachedAudioLyrics.NO_DURATION ? null : duration, indexed.getLine(i)));
+		}
+		var nextChangeAt = indexed.nextChangeAt(currentPosition);
+		return new LyricsWindow(indexed.getSourceName(), indexed.getProvider(), currentPosition, index, nextChangeAt == CachedAudioLyrics.NO_CHANGE ? null : nextChangeAt, lines);
+	}
+
+	private static class PlayerLyrics {
+
+		private final String identifier;
+		private final CachedAudioLyrics lyrics;
+
+		private PlayerLyrics(String identifier, CachedAudioLyrics lyrics) {
+			this.identifier = identifier;
+			this.lyrics = lyrics;
+		}
+	}
+}
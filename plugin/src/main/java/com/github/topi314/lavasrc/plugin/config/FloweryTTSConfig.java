@@ -12,6 +12,9 @@ public class FloweryTTSConfig {
 	private int silence;
 	private float speed = 1.0F;
 	private String audioFormat = "mp3";
+	private int cacheSize = 100;
+	private String cachePath = null;
+	private long cacheMaxDiskSize = 512;
 
 	public String getVoice() {
 		return this.voice;
@@ -52,4 +55,28 @@ public class FloweryTTSConfig {
 	public void setAudioFormat(String audioFormat) {
 		this.audioFormat = audioFormat;
 	}
-}
\ No newline at end of file
+
+	public int getCacheSize() {
+		return this.cacheSize;
+	}
+
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	public String getCachePath() {
+		return this.cachePath;
+	}
+
+	public void setCachePath(String cachePath) {
+		this.cachePath = cachePath;
+	}
+
+	public long getCacheMaxDiskSize() {
+		return this.cacheMaxDiskSize;
+	}
+
+	public void setCacheMaxDiskSize(long cacheMaxDiskSize) {
+		this.cacheMaxDiskSize = cacheMaxDiskSize;
+	}
+}
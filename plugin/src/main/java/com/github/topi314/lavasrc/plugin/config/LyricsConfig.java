@@ -0,0 +1,73 @@
+package com.github.topi314.lavasrc.plugin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "plugins.lavasrc.lyrics")
+@Component
+public class LyricsConfig {
+
+	private int cacheSize = 1000;
+	private long cacheTtl = 3600;
+	private long notFoundCacheTtl = 600;
+	private boolean federated = false;
+	private long hedgeDelay = 300;
+	private long deadline = 5000;
+	private boolean prefetch = false;
+
+	public int getCacheSize() {
+		return this.cacheSize;
+	}
+
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	public long getCacheTtl() {
+		return this.cacheTtl;
+	}
+
+	public void setCacheTtl(long cacheTtl) {
+		this.cacheTtl = cacheTtl;
+	}
+
+	public long getNotFoundCacheTtl() {
+		return this.notFoundCacheTtl;
+	}
+
+	public void setNotFoundCacheTtl(long notFoundCacheTtl) {
+		this.notFoundCacheTtl = notFoundCacheTtl;
+	}
+
+	public boolean isFederated() {
+		return this.federated;
+	}
+
+	public void setFederated(boolean federated) {
+		this.federated = federated;
+	}
+
+	public long getHedgeDelay() {
+		return this.hedgeDelay;
+	}
+
+	public void setHedgeDelay(long hedgeDelay) {
+		this.hedgeDelay = hedgeDelay;
+	}
+
+	public long getDeadline() {
+		return this.deadline;
+	}
+
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+
+	public boolean isPrefetch() {
+		return this.prefetch;
+	}
+
+	public void setPrefetch(boolean prefetch) {
+		this.prefetch = prefetch;
+	}
+}
@@ -0,0 +1,46 @@
+package com.github.topi314.lavasrc.plugin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "plugins.lavasrc.search")
+@Component
+public class SearchConfig {
+
+	private boolean federated = true;
+	private long deadline = 3000;
+	private int cacheSize = 500;
+	private long cacheTtl = 300;
+
+	public boolean isFederated() {
+		return this.federated;
+	}
+
+	public void setFederated(boolean federated) {
+		this.federated = federated;
+	}
+
+	public long getDeadline() {
+		return this.deadline;
+	}
+
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+
+	public int getCacheSize() {
+		return this.cacheSize;
+	}
+
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	public long getCacheTtl() {
+		return this.cacheTtl;
+	}
+
+	public void setCacheTtl(long cacheTtl) {
+		this.cacheTtl = cacheTtl;
+	}
+}
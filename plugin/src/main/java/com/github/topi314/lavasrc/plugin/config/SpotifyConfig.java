@@ -15,6 +15,7 @@ public class SpotifyConfig {
 	private int albumLoadLimit = 6;
 	private boolean resolveArtistsInSearch = true;
 	private boolean localFiles = false;
+	private boolean lazyAlbumIsrc = false;
 
 	public String getClientId() {
 		return this.clientId;
@@ -79,4 +80,12 @@ public class SpotifyConfig {
 	public void setLocalFiles(boolean localFiles) {
 		this.localFiles = localFiles;
 	}
+
+	public boolean isLazyAlbumIsrc() {
+		return this.lazyAlbumIsrc;
+	}
+
+	public void setLazyAlbumIsrc(boolean lazyAlbumIsrc) {
+		this.lazyAlbumIsrc = lazyAlbumIsrc;
+	}
 }
@@ -50,4 +50,31 @@ data class ExtendedTrackInfo(
     val artistArtworkUrl: String? = null,
     val previewUrl: String? = null,
     val isPreview: Boolean = false
-)
\ No newline at end of file
+)
+
+/**
+ * The lyrics lines around a playback position.
+ */
+@Serializable
+data class LyricsWindow(
+    val sourceName: String,
+    val provider: String? = null,
+    val position: Long,
+    /**
+     * The index of the active line, -1 if the first line didn't start yet.
+     */
+    val index: Int,
+    /**
+     * The position at which the active line changes next, null if it won't change anymore.
+     */
+    val nextChangeAt: Long? = null,
+    val lines: List<LyricsWindowLine>
+)
+
+@Serializable
+data class LyricsWindowLine(
+    val index: Int,
+    val timestamp: Long,
+    val duration: Long? = null,
+    val line: String
+)